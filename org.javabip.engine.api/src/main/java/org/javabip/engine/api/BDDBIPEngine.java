@@ -46,6 +46,15 @@ public interface BDDBIPEngine {
 	 */
 	void informCurrentState(BIPComponent component, BDD componentBDD);
 
+	/**
+	 * Inform the kernel engine that the specified component has not informed about its current state yet. All the
+	 * ports of a busy component are disabled until it informs about its current state again.
+	 *
+	 * @param component
+	 *            the specific BIP component.
+	 */
+	void informBusy(BIPComponent component);
+
 	/**
 	 * Inform the kernel engine of the behaviour BDD of the specified component.
 	 *
@@ -64,6 +73,49 @@ public interface BDDBIPEngine {
 	 */
 	void informGlue(List<BDD> totalGlue);
 
+	/**
+	 * Inform the kernel engine of the size of the registered model before the total behaviour and glue BDDs are
+	 * computed, so that the BDD manager can be sized once instead of growing repeatedly during their computation.
+	 *
+	 * @param nbComponents
+	 *            the number of registered components.
+	 * @param nbStates
+	 *            the total number of states of the registered components.
+	 * @param nbPorts
+	 *            the total number of enforceable ports of the registered components.
+	 * @param nbGlueConstraints
+	 *            the number of glue constraint instances, i.e. one per effect component instance of each require and
+	 *            accept constraint.
+	 */
+	void informModelSize(int nbComponents, int nbStates, int nbPorts, int nbGlueConstraints);
+
+	/**
+	 * Specifies the fingerprint of the model, computed from the registered components and the glue, before the total
+	 * behaviour and glue BDDs are computed. The engine may use it to reuse the variable order learned in a previous
+	 * execution of the same model.
+	 *
+	 * @param fingerprint
+	 *            the fingerprint of the model.
+	 */
+	void specifyModelFingerprint(String fingerprint);
+
+	/**
+	 * Restores the total constraints BDD, i.e. the conjunction of the behaviour, glue and data constraints, from a
+	 * snapshot of a previous execution of the model with the fingerprint specified before.
+	 *
+	 * @return true if the BDD has been restored, in which case the total behaviour and glue BDDs must not be computed.
+	 */
+	boolean restoreTotalConstraints();
+
+	/**
+	 * Inform the kernel engine of a static order of the variables, computed before the total behaviour and glue BDDs.
+	 * The variables that are missing from the order, i.e. the d-variables, are placed by the engine.
+	 *
+	 * @param variableOrder
+	 *            the state and port variables, from the top level to the bottom level.
+	 */
+	void informVariableOrdering(int[] variableOrder);
+
 	/**
 	 * Computes the total behaviour BDD.
 	 *
@@ -78,6 +130,18 @@ public interface BDDBIPEngine {
 	 */
 	void runOneIteration() throws BIPEngineException;
 
+	/**
+	 * Computes possible maximal interactions while some components are busy and chooses one non-deterministically
+	 * among those that are maximal whatever the current states of the busy components. Does nothing if there is no
+	 * such interaction.
+	 *
+	 * @return true if an interaction has been chosen.
+	 * @throws BIPEngineException
+	 *             when current state or disabled combinations BDD is null and in case of deadlock of a system without
+	 *             busy components.
+	 */
+	boolean tryRunOneIteration() throws BIPEngineException;
+
 	/**
 	 * Setter for the BIPCoordinator.
 	 *
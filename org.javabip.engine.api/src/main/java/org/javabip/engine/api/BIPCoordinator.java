@@ -21,6 +21,7 @@ package org.javabip.engine.api;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import net.sf.javabdd.BDD;
 import net.sf.javabdd.BDDFactory;
@@ -134,4 +135,21 @@ public interface BIPCoordinator extends BIPEngine, InteractionExecutor {
 	 */
 	BIPComponent getComponentFromObject(Object component);
 
+	/**
+	 * Stops the engine and waits at most the given time for it to terminate. As with stop(), which waits without a
+	 * timeout, the engine is never stopped in the middle of an execution cycle computation or of an interaction.
+	 * 
+	 * @param drain
+	 *            if true, all the interactions chosen by the engine are sent to their participants before the engine
+	 *            stops, otherwise the engine stops after the interaction it is sending.
+	 * @param timeout
+	 *            the maximum time to wait for the engine to terminate, no wait if not positive.
+	 * @param unit
+	 *            the unit of the timeout.
+	 * @return the number of execution cycles in which interactions were executed.
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting.
+	 */
+	long shutdown(boolean drain, long timeout, TimeUnit unit) throws InterruptedException;
+
 }
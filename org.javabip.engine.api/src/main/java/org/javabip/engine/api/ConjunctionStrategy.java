@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Author: Simon Bliudze, Anastasia Mavridou, Radoslaw Szymanek and Alina Zolotukhina
+ */
+package org.javabip.engine.api;
+
+/**
+ * The order in which the engine conjoins the behaviour, glue and data constraints into the total constraints BDD.
+ */
+public enum ConjunctionStrategy {
+
+	/**
+	 * The constraints are conjoined one by one, in the order they are given.
+	 */
+	LINEAR,
+
+	/**
+	 * The constraints are conjoined pairwise, in a balanced tree.
+	 */
+	BALANCED,
+
+	/**
+	 * The constraints are conjoined pairwise, in a balanced tree whose pairs are chosen by the overlap of the supports:
+	 * at each level, each constraint is conjoined with the remaining one whose support has the highest Jaccard index
+	 * with its own, so that constraints over the same variables are conjoined first.
+	 */
+	CLUSTERED
+
+}
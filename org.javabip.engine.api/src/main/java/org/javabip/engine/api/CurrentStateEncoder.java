@@ -59,6 +59,20 @@ public interface CurrentStateEncoder {
 	 */
 	BDD inform(BIPComponent component, String currentState, Set<Port> disabledPorts) throws BIPEngineException;
 
+	/**
+	 * Gets the number of current state BDDs that were already computed for the same state and disabled ports.
+	 *
+	 * @return the number of current state BDDs found in the cache.
+	 */
+	long getCacheHits();
+
+	/**
+	 * Gets the number of current state BDDs that had to be computed.
+	 *
+	 * @return the number of current state BDDs not found in the cache.
+	 */
+	long getCacheMisses();
+
 	/**
 	 * Setter for the BIPCoordinator.
 	 *
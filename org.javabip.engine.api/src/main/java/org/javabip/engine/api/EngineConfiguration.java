@@ -0,0 +1,327 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Author: Simon Bliudze, Anastasia Mavridou, Radoslaw Szymanek and Alina Zolotukhina
+ */
+package org.javabip.engine.api;
+
+/**
+ * The parameters of the BDD manager used by the BDDBIPEngine and of the scheduling of its execution cycles. The
+ * parameters of the BDD manager that are left null keep the default value of the BDD backend.
+ */
+public class EngineConfiguration {
+
+	/**
+	 * The name of the BDD backend given to BDDFactory.init, e.g. "java", "jdd", "buddy" or "cudd". Native backends fall
+	 * back to the Java backend when their library cannot be loaded.
+	 */
+	private String bddBackend = "java";
+
+	/** The initial number of nodes of the node table. */
+	private int nodeTableSize = 1500;
+
+	/** The initial size of the operation cache. */
+	private int cacheSize = 50000;
+
+	/** The ratio of the operation cache size to the node table size, kept when the node table is resized. */
+	private Double cacheRatio;
+
+	/** The minimum fraction of free nodes after a garbage collection, below which the node table is resized. */
+	private Double minFreeNodes;
+
+	/** The maximum number of nodes added to the node table at each resize. */
+	private Integer maxIncrease;
+
+	/** The factor by which the node table grows at each resize. */
+	private Double increaseFactor;
+
+	private ReorderingStrategy reorderingStrategy = ReorderingStrategy.SIFTITE;
+
+	/**
+	 * Whether the variables are ordered according to the topology of the glue before the total BDD is computed, or left
+	 * in registration order, which is the default.
+	 */
+	private boolean staticVariableOrdering = false;
+
+	/**
+	 * The directory where the variable orders learned by reordering are stored, keyed by a fingerprint of the model,
+	 * and loaded at the next start. If null, the variable orders are not stored.
+	 */
+	private String variableOrderDirectory;
+
+	/**
+	 * The directory where the snapshots of the total constraints BDD are stored, keyed by a fingerprint of the model,
+	 * and restored at the next start instead of computing the BDD. If null, no snapshot is used.
+	 */
+	private String constraintsSnapshotDirectory;
+
+	private MaximalInteractionMode maximalInteractionMode = MaximalInteractionMode.SYMBOLIC;
+
+	/**
+	 * Whether each execution cycle executes several maximal interactions over disjoint sets of components, chosen at
+	 * random one after the other, instead of a single one. Each of them is maximal in the state at the start of the
+	 * cycle. This is not equivalent to executing them in successive cycles: once an interaction has been executed, its
+	 * components may enable a larger interaction that includes the components of another one, which is then no longer
+	 * maximal.
+	 */
+	private boolean maximalParallelStep = false;
+
+	/**
+	 * Whether an execution cycle starts as soon as the components that have informed determine a maximal interaction,
+	 * the components that have not informed yet being busy, instead of waiting for all the components to inform. It is
+	 * ignored when the glue has data wires.
+	 */
+	private boolean partialInformScheduling = false;
+
+	/**
+	 * The maximum number of interactions whose participants have not all informed yet. Above one, the next interaction
+	 * is chosen among the other components while the previous ones execute, and the components that do not participate
+	 * in an interaction are not notified. It is ignored when the glue has data wires.
+	 */
+	private int maxOutstandingInteractions = 1;
+
+	/**
+	 * Whether the clusters of component types that the glue does not connect are executed by independent engines, each
+	 * with its own BDD manager and thread, instead of a single engine.
+	 */
+	private boolean partitionedEngine = false;
+
+	/**
+	 * The thread running the engine loop, which also notifies the components. A virtual thread requires a JVM that
+	 * supports them, otherwise a platform thread is used.
+	 */
+	private ExecutionBackend executionBackend = ExecutionBackend.PLATFORM_ENGINE_THREAD;
+
+	/**
+	 * Number of current state BDDs cached per component, for the pairs of a state and a set of disabled ports the
+	 * component informs of most recently. It is at least two.
+	 */
+	private int currentStateCacheCapacity = 64;
+
+	/**
+	 * Whether the components that do not participate in the chosen interactions are notified and inform again before
+	 * the next execution cycle. If not, the last informed state of the non participants none of whose ports was
+	 * enabled is reused until they participate in an interaction, the others being still notified.
+	 */
+	private boolean notifyNonParticipants = true;
+
+	/**
+	 * Number of threads compiling the require and accept constraints of the glue, each with its own BDD manager of the
+	 * "java" BDD package. With one thread, the glue is compiled by the engine thread in the BDD manager of the engine.
+	 */
+	private int glueCompilationThreads = 1;
+
+	/**
+	 * The order in which the behaviour, glue and data constraints are conjoined into the total constraints BDD.
+	 */
+	private ConjunctionStrategy conjunctionStrategy = ConjunctionStrategy.BALANCED;
+
+	/**
+	 * Whether the engine keeps the behaviour, glue and data constraints as a list of clusters, conjoined with the
+	 * current state in each cycle, instead of a single total constraints BDD.
+	 */
+	private boolean partitionedTransitionRelation = false;
+
+	/**
+	 * Maximal number of nodes of a cluster made of several constraints, when the transition relation is partitioned.
+	 */
+	private int partitionClusterNodeLimit = 10000;
+
+	public String getBddBackend() {
+		return bddBackend;
+	}
+
+	public void setBddBackend(String bddBackend) {
+		this.bddBackend = bddBackend;
+	}
+
+	public int getNodeTableSize() {
+		return nodeTableSize;
+	}
+
+	public void setNodeTableSize(int nodeTableSize) {
+		this.nodeTableSize = nodeTableSize;
+	}
+
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	public Double getCacheRatio() {
+		return cacheRatio;
+	}
+
+	public void setCacheRatio(Double cacheRatio) {
+		this.cacheRatio = cacheRatio;
+	}
+
+	public Double getMinFreeNodes() {
+		return minFreeNodes;
+	}
+
+	public void setMinFreeNodes(Double minFreeNodes) {
+		this.minFreeNodes = minFreeNodes;
+	}
+
+	public Integer getMaxIncrease() {
+		return maxIncrease;
+	}
+
+	public void setMaxIncrease(Integer maxIncrease) {
+		this.maxIncrease = maxIncrease;
+	}
+
+	public Double getIncreaseFactor() {
+		return increaseFactor;
+	}
+
+	public void setIncreaseFactor(Double increaseFactor) {
+		this.increaseFactor = increaseFactor;
+	}
+
+	public ReorderingStrategy getReorderingStrategy() {
+		return reorderingStrategy;
+	}
+
+	public void setReorderingStrategy(ReorderingStrategy reorderingStrategy) {
+		this.reorderingStrategy = reorderingStrategy;
+	}
+
+	public boolean isStaticVariableOrdering() {
+		return staticVariableOrdering;
+	}
+
+	public void setStaticVariableOrdering(boolean staticVariableOrdering) {
+		this.staticVariableOrdering = staticVariableOrdering;
+	}
+
+	public String getVariableOrderDirectory() {
+		return variableOrderDirectory;
+	}
+
+	public void setVariableOrderDirectory(String variableOrderDirectory) {
+		this.variableOrderDirectory = variableOrderDirectory;
+	}
+
+	public String getConstraintsSnapshotDirectory() {
+		return constraintsSnapshotDirectory;
+	}
+
+	public void setConstraintsSnapshotDirectory(String constraintsSnapshotDirectory) {
+		this.constraintsSnapshotDirectory = constraintsSnapshotDirectory;
+	}
+
+	public MaximalInteractionMode getMaximalInteractionMode() {
+		return maximalInteractionMode;
+	}
+
+	public void setMaximalInteractionMode(MaximalInteractionMode maximalInteractionMode) {
+		this.maximalInteractionMode = maximalInteractionMode;
+	}
+
+	public boolean isPartialInformScheduling() {
+		return partialInformScheduling;
+	}
+
+	public void setPartialInformScheduling(boolean partialInformScheduling) {
+		this.partialInformScheduling = partialInformScheduling;
+	}
+
+	public int getMaxOutstandingInteractions() {
+		return maxOutstandingInteractions;
+	}
+
+	public void setMaxOutstandingInteractions(int maxOutstandingInteractions) {
+		this.maxOutstandingInteractions = maxOutstandingInteractions;
+	}
+
+	public boolean isMaximalParallelStep() {
+		return maximalParallelStep;
+	}
+
+	public void setMaximalParallelStep(boolean maximalParallelStep) {
+		this.maximalParallelStep = maximalParallelStep;
+	}
+
+	public boolean isPartitionedEngine() {
+		return partitionedEngine;
+	}
+
+	public void setPartitionedEngine(boolean partitionedEngine) {
+		this.partitionedEngine = partitionedEngine;
+	}
+
+	public ExecutionBackend getExecutionBackend() {
+		return executionBackend;
+	}
+
+	public void setExecutionBackend(ExecutionBackend executionBackend) {
+		this.executionBackend = executionBackend;
+	}
+
+	public int getCurrentStateCacheCapacity() {
+		return currentStateCacheCapacity;
+	}
+
+	public void setCurrentStateCacheCapacity(int currentStateCacheCapacity) {
+		this.currentStateCacheCapacity = currentStateCacheCapacity;
+	}
+
+	public boolean isNotifyNonParticipants() {
+		return notifyNonParticipants;
+	}
+
+	public void setNotifyNonParticipants(boolean notifyNonParticipants) {
+		this.notifyNonParticipants = notifyNonParticipants;
+	}
+
+	public int getGlueCompilationThreads() {
+		return glueCompilationThreads;
+	}
+
+	public void setGlueCompilationThreads(int glueCompilationThreads) {
+		this.glueCompilationThreads = glueCompilationThreads;
+	}
+
+	public ConjunctionStrategy getConjunctionStrategy() {
+		return conjunctionStrategy;
+	}
+
+	public void setConjunctionStrategy(ConjunctionStrategy conjunctionStrategy) {
+		this.conjunctionStrategy = conjunctionStrategy;
+	}
+
+	public boolean isPartitionedTransitionRelation() {
+		return partitionedTransitionRelation;
+	}
+
+	public void setPartitionedTransitionRelation(boolean partitionedTransitionRelation) {
+		this.partitionedTransitionRelation = partitionedTransitionRelation;
+	}
+
+	public int getPartitionClusterNodeLimit() {
+		return partitionClusterNodeLimit;
+	}
+
+	public void setPartitionClusterNodeLimit(int partitionClusterNodeLimit) {
+		this.partitionClusterNodeLimit = partitionClusterNodeLimit;
+	}
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Author: Simon Bliudze, Anastasia Mavridou, Radoslaw Szymanek and Alina Zolotukhina
+ */
+package org.javabip.engine.api;
+
+/**
+ * The kind of thread on which the coordinator runs its engine loop, which also notifies the components of the chosen
+ * interactions. The components themselves are executor actors whatever the kind of the engine thread.
+ */
+public enum ExecutionBackend {
+
+	/**
+	 * The engine loop runs on a dedicated platform thread.
+	 */
+	PLATFORM_ENGINE_THREAD,
+
+	/**
+	 * The engine loop runs on a virtual thread, so that an engine does not hold a platform thread while it waits for
+	 * the components. Falls back to a platform thread when the JVM does not support virtual threads.
+	 */
+	VIRTUAL_ENGINE_THREAD
+
+}
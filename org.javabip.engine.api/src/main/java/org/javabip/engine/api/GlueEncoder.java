@@ -76,4 +76,14 @@ public interface GlueEncoder {
 	 */
 	List<BDD> totalGlue() throws BIPEngineException;
 
+	/**
+	 * Computes a static order of the state and port variables from the topology of the glue. Component types that are
+	 * connected by require, accept or data wire constraints are placed next to each other, and the instances of the
+	 * connected types are interleaved, so that the variables of interacting ports are close in the order.
+	 * 
+	 * @return the variables of the BDD manager, from the top level to the bottom level. The d-variables are not
+	 *         included.
+	 */
+	int[] variableOrdering();
+
 }
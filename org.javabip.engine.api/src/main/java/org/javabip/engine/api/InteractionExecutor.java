@@ -42,6 +42,17 @@ public interface InteractionExecutor {
 	 */
 	void execute(byte[] valuation) throws BIPEngineException;
 
+	/**
+	 * Called by the engine with several interactions over disjoint sets of components, chosen in the same execution
+	 * cycle. Each valuation is transformed to its own list of interactions and all of them are executed together.
+	 * 
+	 * @param valuations
+	 *            the valuations of the interactions, each as in execute(byte[]).
+	 * @throws BIPEngineException
+	 *             the BIP engine exception
+	 */
+	void execute(List<byte[]> valuations) throws BIPEngineException;
+
 	/**
 	 * Notifies all the components whether they need to perform a transition.
 	 * 
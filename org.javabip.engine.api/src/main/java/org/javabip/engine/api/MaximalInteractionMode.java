@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Author: Simon Bliudze, Anastasia Mavridou, Radoslaw Szymanek and Alina Zolotukhina
+ */
+package org.javabip.engine.api;
+
+/**
+ * The ways in which the BDDBIPEngine can compute the maximal interactions of the global BDD at each execution cycle.
+ */
+public enum MaximalInteractionMode {
+
+	/**
+	 * The maximal interactions are computed symbolically on the BDD over the port variables. Only the maximal
+	 * interactions are enumerated.
+	 */
+	SYMBOLIC,
+
+	/**
+	 * All the satisfying cubes of the global BDD are enumerated and compared pairwise in order to keep the maximal
+	 * ones. Kept as a fallback for comparison.
+	 */
+	ENUMERATE_CUBES,
+
+	/**
+	 * The maximal interactions are computed symbolically and a single one of them is drawn uniformly at random by
+	 * walking the BDD, without enumerating the others.
+	 */
+	PICK_ONE
+
+}
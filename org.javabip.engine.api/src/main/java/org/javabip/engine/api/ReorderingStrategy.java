@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Author: Simon Bliudze, Anastasia Mavridou, Radoslaw Szymanek and Alina Zolotukhina
+ */
+package org.javabip.engine.api;
+
+/**
+ * The variable reordering strategies that the BDDBIPEngine can apply after the behaviour, glue and data constraints
+ * have been added to the total BDD.
+ */
+public enum ReorderingStrategy {
+
+	/** The variables are never reordered. */
+	NONE,
+
+	/**
+	 * The BDD manager reorders the variables by sifting whenever its node table is about to grow, and no explicit
+	 * reordering is done.
+	 */
+	AUTO,
+
+	WIN2,
+
+	WIN2ITE,
+
+	WIN3,
+
+	WIN3ITE,
+
+	SIFT,
+
+	SIFTITE,
+
+	RANDOM
+
+}
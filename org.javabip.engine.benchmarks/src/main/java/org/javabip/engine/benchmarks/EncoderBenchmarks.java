@@ -0,0 +1,135 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javabip.engine.benchmarks;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.javabdd.BDD;
+
+import org.javabip.api.BIPComponent;
+import org.javabip.api.Port;
+import org.javabip.engine.api.EngineConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the encoders on synthetic models. Each benchmark encodes the constraints of all the components of the
+ * model once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EncoderBenchmarks {
+
+	@Param({ "8", "32", "128" })
+	public int nbComponents;
+
+	@Param({ "2", "4" })
+	public int nbPortsPerComponent;
+
+	@Param({ "RENDEZVOUS", "BROADCAST", "STAR", "RING" })
+	public GlueShape shape;
+
+	private SyntheticModel model;
+
+	private SyntheticEngine engine;
+
+	/** For each component, its first port and the first port of its predecessor, which provides its data. */
+	private Map<BIPComponent, Set<Port>>[] disabledCombinations;
+
+	private int nbInforms;
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		model = new SyntheticModel(nbComponents, nbPortsPerComponent, shape);
+		engine = new SyntheticEngine(model, new EngineConfiguration());
+		engine.register();
+		engine.specifyDataGlue();
+
+		List<BIPComponent> components = model.getComponents();
+		disabledCombinations = new Map[components.size()];
+		for (int i = 0; i < components.size(); i++) {
+			BIPComponent provider = components.get((i + components.size() - 1) % components.size());
+			Set<Port> providerPorts = new HashSet<Port>(Collections.singleton(model.getPorts(provider).get(0)));
+			disabledCombinations[i] = Collections.singletonMap(provider, providerPorts);
+		}
+	}
+
+	@Benchmark
+	public void behaviourBDD(Blackhole blackhole) {
+		for (BIPComponent component : model.getComponents()) {
+			BDD behaviour = engine.getBehaviourEncoder().behaviourBDD(component);
+			blackhole.consume(behaviour.nodeCount());
+			behaviour.free();
+		}
+	}
+
+	@Benchmark
+	public void totalGlue(Blackhole blackhole) {
+		for (BDD glue : engine.getGlueEncoder().totalGlue()) {
+			blackhole.consume(glue.nodeCount());
+			glue.free();
+		}
+	}
+
+	/**
+	 * The components alternate between their two states, so that after the first invocations the current state BDDs
+	 * are found in the cache of the encoder.
+	 */
+	@Benchmark
+	public void currentStateInform(Blackhole blackhole) {
+		String state = SyntheticModel.STATES.get(nbInforms++ % SyntheticModel.STATES.size());
+		Set<Port> noDisabledPorts = Collections.emptySet();
+		for (BIPComponent component : model.getComponents()) {
+			blackhole.consume(engine.getCurrentStateEncoder().inform(component, state, noDisabledPorts));
+		}
+	}
+
+	@Benchmark
+	public void encodeDisabledCombinations(Blackhole blackhole) {
+		List<BIPComponent> components = model.getComponents();
+		for (int i = 0; i < components.size(); i++) {
+			BIPComponent component = components.get(i);
+			BDD disabled = engine.getDataEncoder().encodeDisabledCombinations(component,
+					model.getPorts(component).get(0), disabledCombinations[i]);
+			blackhole.consume(disabled.nodeCount());
+			disabled.free();
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javabip.engine.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.javabip.engine.api.EngineConfiguration;
+import org.javabip.engine.api.MaximalInteractionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of one execution cycle of the engine, from the conjunction of the current state BDDs to the choice of an
+ * interaction, on synthetic models whose components are all in their initial state with all their ports enabled.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EngineCycleBenchmark {
+
+	@Param({ "8", "32", "128" })
+	public int nbComponents;
+
+	@Param({ "2", "4" })
+	public int nbPortsPerComponent;
+
+	@Param({ "RENDEZVOUS", "BROADCAST", "STAR", "RING" })
+	public GlueShape shape;
+
+	@Param({ "SYMBOLIC", "PICK_ONE", "ENUMERATE_CUBES" })
+	public MaximalInteractionMode mode;
+
+	private SyntheticEngine engine;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		EngineConfiguration configuration = new EngineConfiguration();
+		configuration.setMaximalInteractionMode(mode);
+		engine = new SyntheticEngine(new SyntheticModel(nbComponents, nbPortsPerComponent, shape), configuration);
+		engine.register();
+		engine.compile();
+		engine.informCurrentStates(SyntheticModel.STATES.get(0));
+	}
+
+	@Benchmark
+	public long runOneIteration() {
+		engine.getEngine().runOneIteration();
+		return engine.getNbExecutedInteractions();
+	}
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javabip.engine.benchmarks;
+
+/**
+ * The shapes of the glue of the synthetic models. In all of them, the i-th port of a component only interacts with the
+ * i-th ports of the other components.
+ */
+public enum GlueShape {
+
+	/** All the components synchronise. */
+	RENDEZVOUS,
+
+	/** The first component triggers an interaction that any subset of the other components may join. */
+	BROADCAST,
+
+	/** The first component synchronises with exactly one of the other components. */
+	STAR,
+
+	/** Each component synchronises with one of its two neighbours on a ring. */
+	RING
+
+}
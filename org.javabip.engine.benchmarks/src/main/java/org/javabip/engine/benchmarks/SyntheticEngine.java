@@ -0,0 +1,295 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javabip.engine.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+
+import org.javabip.api.BIPActor;
+import org.javabip.api.BIPComponent;
+import org.javabip.api.BIPGlue;
+import org.javabip.api.Behaviour;
+import org.javabip.api.Port;
+import org.javabip.engine.BDDBIPEngineImpl;
+import org.javabip.engine.BehaviourEncoderImpl;
+import org.javabip.engine.CurrentStateEncoderImpl;
+import org.javabip.engine.DataEncoderImpl;
+import org.javabip.engine.GlueEncoderImpl;
+import org.javabip.engine.api.BehaviourEncoder;
+import org.javabip.engine.api.DataCoordinator;
+import org.javabip.engine.api.DataEncoder;
+import org.javabip.engine.api.EngineConfiguration;
+import org.javabip.engine.api.InteractionExecutor;
+
+/**
+ * The engine and the encoders set up for a synthetic model, without the coordinators and the executors. The
+ * registration and initialization steps of the BIP Coordinator are performed directly on the encoders, and the
+ * coordinator seen by the encoders and the engine only answers the queries about the model. The interactions chosen
+ * by the engine are counted but not executed.
+ */
+public class SyntheticEngine {
+
+	private SyntheticModel model;
+
+	private BDDBIPEngineImpl engine;
+	private BehaviourEncoderImpl behenc = new BehaviourEncoderImpl();
+	private GlueEncoderImpl glueenc = new GlueEncoderImpl();
+	private CurrentStateEncoderImpl currstenc = new CurrentStateEncoderImpl();
+	private DataEncoderImpl dataEncoder = new DataEncoderImpl();
+
+	private DataCoordinator coordinator;
+
+	private int nbPorts;
+	private int nbStates;
+	private Map<Integer, Entry<Port, Port>> dVarPositionsToWires = new Hashtable<Integer, Entry<Port, Port>>();
+	private List<Integer> positionsOfDVariables = new ArrayList<Integer>();
+
+	private long nbExecutedInteractions;
+
+	public SyntheticEngine(SyntheticModel model, EngineConfiguration configuration) {
+		this.model = model;
+		this.engine = new BDDBIPEngineImpl(configuration);
+		this.coordinator = new ModelCoordinator();
+
+		glueenc.setBehaviourEncoder(behenc);
+		glueenc.setEngine(engine);
+		glueenc.setBIPCoordinator(coordinator);
+		behenc.setEngine(engine);
+		behenc.setBIPCoordinator(coordinator);
+		currstenc.setBehaviourEncoder(behenc);
+		currstenc.setEngine(engine);
+		currstenc.setBIPCoordinator(coordinator);
+		engine.setBIPCoordinator(coordinator);
+		dataEncoder.setDataCoordinator(coordinator);
+		dataEncoder.setBehaviourEncoder(behenc);
+		dataEncoder.setBDDManager(engine.getBDDManager());
+	}
+
+	/**
+	 * Creates the BDD variables and the behaviour BDDs of all the components, as the BIP Coordinator does at
+	 * registration.
+	 */
+	public void register() {
+		for (BIPComponent component : model.getComponents()) {
+			Behaviour behaviour = model.getBehaviour(component);
+			List<Port> ports = behaviour.getEnforceablePorts();
+			int nbComponentStates = behaviour.getStates().size();
+			behenc.createBDDNodes(component, ports, new ArrayList<String>(behaviour.getStates()));
+			engine.informBehaviour(component, behenc.behaviourBDD(component));
+			for (int i = 0; i < ports.size(); i++) {
+				behenc.getPositionsOfPorts().add(nbPorts + nbStates + nbComponentStates + i);
+				behenc.getPortToPosition().put(ports.get(i), nbPorts + nbStates + nbComponentStates + i);
+			}
+			nbPorts += ports.size();
+			nbStates += nbComponentStates;
+		}
+		glueenc.specifyGlue(model.getGlue());
+	}
+
+	/**
+	 * Creates the d-variables and gives the data constraints to the engine. Must be called after register().
+	 */
+	public void specifyDataGlue() {
+		engine.specifyPermanentExtraConstraints(dataEncoder.specifyDataGlue(model.getGlue().getDataWires()));
+	}
+
+	/**
+	 * Computes the total behaviour and glue BDDs, as the BIP Coordinator does before the first execution cycle.
+	 */
+	public void compile() {
+		engine.informModelSize(model.getComponents().size(), nbStates, nbPorts, model.getGlue()
+				.getRequiresConstraints().size() + model.getGlue().getAcceptConstraints().size());
+		engine.informVariableOrdering(glueenc.variableOrdering());
+		engine.totalBehaviourBDD();
+		engine.informGlue(glueenc.totalGlue());
+	}
+
+	/**
+	 * Informs the engine that all the components are in the given state, with all their ports enabled.
+	 */
+	public void informCurrentStates(String state) {
+		Set<Port> noDisabledPorts = Collections.emptySet();
+		for (BIPComponent component : model.getComponents()) {
+			engine.informCurrentState(component, currstenc.inform(component, state, noDisabledPorts));
+		}
+	}
+
+	public BDDBIPEngineImpl getEngine() {
+		return engine;
+	}
+
+	public BehaviourEncoderImpl getBehaviourEncoder() {
+		return behenc;
+	}
+
+	public GlueEncoderImpl getGlueEncoder() {
+		return glueenc;
+	}
+
+	public CurrentStateEncoderImpl getCurrentStateEncoder() {
+		return currstenc;
+	}
+
+	public DataEncoderImpl getDataEncoder() {
+		return dataEncoder;
+	}
+
+	public long getNbExecutedInteractions() {
+		return nbExecutedInteractions;
+	}
+
+	/**
+	 * The coordinator seen by the encoders and the engine. It answers the queries about the model and counts the
+	 * interactions it is asked to execute. The registration and the lifecycle of the engine are performed by
+	 * SyntheticEngine itself, hence the corresponding methods are not supported.
+	 */
+	private class ModelCoordinator implements DataCoordinator {
+
+		public Behaviour getBehaviourByComponent(BIPComponent component) {
+			return model.getBehaviour(component);
+		}
+
+		public List<BIPComponent> getBIPComponentInstances(String type) {
+			List<BIPComponent> instances = new ArrayList<BIPComponent>();
+			for (BIPComponent component : model.getComponents()) {
+				if (component.getType().equals(type)) {
+					instances.add(component);
+				}
+			}
+			return instances;
+		}
+
+		public BIPComponent getComponentFromObject(Object component) {
+			for (BIPComponent registered : model.getComponents()) {
+				if (registered == component) {
+					return registered;
+				}
+			}
+			return null;
+		}
+
+		public int getNoComponents() {
+			return model.getComponents().size();
+		}
+
+		public int getNoPorts() {
+			return nbPorts;
+		}
+
+		public int getNoStates() {
+			return nbStates;
+		}
+
+		public BehaviourEncoder getBehaviourEncoderInstance() {
+			return behenc;
+		}
+
+		public BDDFactory getBDDManager() {
+			return engine.getBDDManager();
+		}
+
+		public DataEncoder getDataEncoder() {
+			return dataEncoder;
+		}
+
+		public Map<Integer, Entry<Port, Port>> getdVarPositionsToWires() {
+			return dVarPositionsToWires;
+		}
+
+		public List<Integer> getPositionsOfDVariables() {
+			return positionsOfDVariables;
+		}
+
+		public void setInteractionExecutor(InteractionExecutor interactionExecutor) {
+			/* The interactions are always counted by this coordinator */
+		}
+
+		public void specifyTemporaryConstraints(BDD constraint) {
+			engine.specifyTemporaryExtraConstraints(constraint);
+		}
+
+		public void specifyPermanentConstraints(Set<BDD> constraints) {
+			engine.specifyPermanentExtraConstraints(constraints);
+		}
+
+		public void execute(byte[] valuation) {
+			nbExecutedInteractions++;
+		}
+
+		public void execute(List<byte[]> valuations) {
+			nbExecutedInteractions += valuations.size();
+		}
+
+		public void executeInteractions(List<List<Port>> portsToFire) {
+			nbExecutedInteractions += portsToFire.size();
+		}
+
+		public void inform(BIPComponent component, String currentState, Set<Port> disabledPorts) {
+			engine.informCurrentState(component, currstenc.inform(component, currentState, disabledPorts));
+		}
+
+		public void informSpecific(BIPComponent decidingComponent, Port decidingPort,
+				Map<BIPComponent, Set<Port>> disabledCombinations) {
+			throw new UnsupportedOperationException("The synthetic models have no data transfers.");
+		}
+
+		public void specifyGlue(BIPGlue glue) {
+			throw new UnsupportedOperationException("The glue of a synthetic model is given by the model.");
+		}
+
+		public BIPActor register(Object component, String id, boolean useSpec) {
+			throw new UnsupportedOperationException(
+					"The components of a synthetic model are registered by SyntheticEngine.register().");
+		}
+
+		public void initialize() {
+			throw new UnsupportedOperationException("A synthetic engine has no engine thread.");
+		}
+
+		public void start() {
+			throw new UnsupportedOperationException("A synthetic engine has no engine thread.");
+		}
+
+		public void stop() {
+			throw new UnsupportedOperationException("A synthetic engine has no engine thread.");
+		}
+
+		public void execute() {
+			throw new UnsupportedOperationException("A synthetic engine has no engine thread.");
+		}
+
+		public long shutdown(boolean drain, long timeout, TimeUnit unit) {
+			throw new UnsupportedOperationException("A synthetic engine has no engine thread.");
+		}
+
+		@Override
+		public String toString() {
+			return "SyntheticEngine coordinator";
+		}
+	}
+
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javabip.engine.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.javabip.api.Accept;
+import org.javabip.api.BIPComponent;
+import org.javabip.api.BIPGlue;
+import org.javabip.api.Behaviour;
+import org.javabip.api.DataWire;
+import org.javabip.api.Port;
+import org.javabip.api.PortBase;
+import org.javabip.api.Require;
+
+/**
+ * A synthetic model: components, their behaviours and the glue, built without the executors.
+ *
+ * Each component has its own type, two states and the given number of ports, all of them enabled in both states. The
+ * glue connects the i-th ports of the components according to the glue shape. The first port of each component also
+ * needs the data of its predecessor on a ring, and provides its data to its successor.
+ *
+ * The objects of the model implement the interfaces of the BIP API by means of dynamic proxies, which return fixed
+ * values.
+ */
+public class SyntheticModel {
+
+	public static final String DATA_NAME = "d";
+
+	public static final List<String> STATES = Collections.unmodifiableList(Arrays.asList("s0", "s1"));
+
+	private List<BIPComponent> components = new ArrayList<BIPComponent>();
+
+	private Map<BIPComponent, Behaviour> behaviours = new HashMap<BIPComponent, Behaviour>();
+
+	private Map<BIPComponent, List<Port>> ports = new HashMap<BIPComponent, List<Port>>();
+
+	private BIPGlue glue;
+
+	/**
+	 * @param nbComponents
+	 *            the number of components, at least two.
+	 * @param nbPortsPerComponent
+	 *            the number of ports of each component, at least one.
+	 * @param shape
+	 *            the shape of the glue.
+	 */
+	public SyntheticModel(int nbComponents, int nbPortsPerComponent, GlueShape shape) {
+		if (nbComponents < 2 || nbPortsPerComponent < 1) {
+			throw new IllegalArgumentException("A synthetic model needs at least two components with one port each.");
+		}
+		for (int i = 0; i < nbComponents; i++) {
+			createComponent(i, nbPortsPerComponent);
+		}
+
+		List<Require> requires = new ArrayList<Require>();
+		List<Accept> accepts = new ArrayList<Accept>();
+		for (int port = 0; port < nbPortsPerComponent; port++) {
+			for (int i = 0; i < nbComponents; i++) {
+				createConstraints(shape, nbComponents, i, port, requires, accepts);
+			}
+		}
+		List<DataWire> dataWires = new ArrayList<DataWire>();
+		for (int i = 0; i < nbComponents; i++) {
+			Map<String, Object> wire = new HashMap<String, Object>();
+			wire.put("getFrom", portBase(type(i), DATA_NAME));
+			wire.put("getTo", portBase(type((i + 1) % nbComponents), DATA_NAME));
+			dataWires.add(proxy(DataWire.class, wire));
+		}
+
+		Map<String, Object> glueValues = new HashMap<String, Object>();
+		glueValues.put("getRequiresConstraints", requires);
+		glueValues.put("getAcceptConstraints", accepts);
+		glueValues.put("getDataWires", dataWires);
+		glue = proxy(BIPGlue.class, glueValues);
+	}
+
+	/**
+	 * @return the components, in registration order.
+	 */
+	public List<BIPComponent> getComponents() {
+		return components;
+	}
+
+	public Behaviour getBehaviour(BIPComponent component) {
+		return behaviours.get(component);
+	}
+
+	public List<Port> getPorts(BIPComponent component) {
+		return ports.get(component);
+	}
+
+	public BIPGlue getGlue() {
+		return glue;
+	}
+
+	private void createComponent(int index, int nbPorts) {
+		Map<String, Object> componentValues = new HashMap<String, Object>();
+		componentValues.put("getId", "c" + index);
+		componentValues.put("getType", type(index));
+		BIPComponent component = proxy(BIPComponent.class, componentValues);
+
+		List<Port> componentPorts = new ArrayList<Port>();
+		for (int i = 0; i < nbPorts; i++) {
+			Map<String, Object> portValues = new HashMap<String, Object>();
+			portValues.put("getId", "p" + i);
+			portValues.put("getSpecType", type(index));
+			portValues.put("component", component);
+			componentPorts.add(proxy(Port.class, portValues));
+		}
+		Map<String, Set<Port>> stateToPorts = new HashMap<String, Set<Port>>();
+		for (String state : STATES) {
+			stateToPorts.put(state, new LinkedHashSet<Port>(componentPorts));
+		}
+		Set<Port> dataPorts = Collections.singleton(componentPorts.get(0));
+
+		Map<String, Object> behaviourValues = new HashMap<String, Object>();
+		behaviourValues.put("getComponentType", type(index));
+		behaviourValues.put("getStates", new LinkedHashSet<String>(STATES));
+		behaviourValues.put("getEnforceablePorts", componentPorts);
+		behaviourValues.put("getStateToPorts", stateToPorts);
+		behaviourValues.put("portsNeedingData", dataPorts);
+		behaviourValues.put("getDataProvidingPorts", dataPorts);
+		behaviourValues.put("portToDataInForGuard", Collections.emptySet());
+		behaviourValues.put("portToDataInForTransition", Collections.emptySet());
+		behaviourValues.put("getCurrentState", STATES.get(0));
+
+		components.add(component);
+		ports.put(component, componentPorts);
+		behaviours.put(component, proxy(Behaviour.class, behaviourValues));
+	}
+
+	private void createConstraints(GlueShape shape, int nbComponents, int component, int port,
+			List<Require> requires, List<Accept> accepts) {
+		List<List<PortBase>> requiredOptions = new ArrayList<List<PortBase>>();
+		List<PortBase> accepted = new ArrayList<PortBase>();
+		switch (shape) {
+		case RENDEZVOUS:
+			List<PortBase> others = new ArrayList<PortBase>();
+			for (int other = 0; other < nbComponents; other++) {
+				if (other != component) {
+					others.add(portBase(type(other), "p" + port));
+					accepted.add(portBase(type(other), "p" + port));
+				}
+			}
+			requiredOptions.add(others);
+			break;
+		case BROADCAST:
+			if (component == 0) {
+				requiredOptions.add(new ArrayList<PortBase>());
+			} else {
+				requiredOptions.add(Collections.singletonList(portBase(type(0), "p" + port)));
+			}
+			for (int other = 0; other < nbComponents; other++) {
+				if (other != component) {
+					accepted.add(portBase(type(other), "p" + port));
+				}
+			}
+			break;
+		case STAR:
+			if (component == 0) {
+				for (int other = 1; other < nbComponents; other++) {
+					requiredOptions.add(Collections.singletonList(portBase(type(other), "p" + port)));
+					accepted.add(portBase(type(other), "p" + port));
+				}
+			} else {
+				requiredOptions.add(Collections.singletonList(portBase(type(0), "p" + port)));
+				accepted.add(portBase(type(0), "p" + port));
+			}
+			break;
+		case RING:
+			for (int neighbour : new int[] { (component + 1) % nbComponents,
+					(component + nbComponents - 1) % nbComponents }) {
+				requiredOptions.add(Collections.singletonList(portBase(type(neighbour), "p" + port)));
+				accepted.add(portBase(type(neighbour), "p" + port));
+			}
+			break;
+		}
+
+		Map<String, Object> requireValues = new HashMap<String, Object>();
+		requireValues.put("getEffect", portBase(type(component), "p" + port));
+		requireValues.put("getCauses", requiredOptions);
+		requires.add(proxy(Require.class, requireValues));
+
+		Map<String, Object> acceptValues = new HashMap<String, Object>();
+		acceptValues.put("getEffect", portBase(type(component), "p" + port));
+		acceptValues.put("getCauses", accepted);
+		accepts.add(proxy(Accept.class, acceptValues));
+	}
+
+	private static String type(int index) {
+		return "C" + index;
+	}
+
+	private static PortBase portBase(String specType, String id) {
+		Map<String, Object> values = new HashMap<String, Object>();
+		values.put("getId", id);
+		values.put("getSpecType", specType);
+		return proxy(PortBase.class, values);
+	}
+
+	/**
+	 * Creates an object implementing the interface, whose methods return the value associated with their name
+	 * regardless of their arguments. Methods without a value return null if they are void and throw an
+	 * UnsupportedOperationException otherwise. Objects are only equal to themselves.
+	 */
+	static <T> T proxy(Class<T> type, final Map<String, Object> values) {
+		StringBuilder description = new StringBuilder(type.getSimpleName());
+		for (String key : new String[] { "getType", "getSpecType", "getId" }) {
+			if (values.containsKey(key)) {
+				description.append(' ').append(values.get(key));
+			}
+		}
+		final String name = description.toString();
+		Object proxy = Proxy.newProxyInstance(SyntheticModel.class.getClassLoader(), new Class<?>[] { type },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("equals") && args != null && args.length == 1) {
+							return proxy == args[0];
+						}
+						if (method.getName().equals("hashCode") && args == null) {
+							return System.identityHashCode(proxy);
+						}
+						if (method.getName().equals("toString") && args == null) {
+							return name;
+						}
+						if (values.containsKey(method.getName())) {
+							return values.get(method.getName());
+						}
+						if (method.getReturnType() == void.class) {
+							return null;
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		return type.cast(proxy);
+	}
+
+}
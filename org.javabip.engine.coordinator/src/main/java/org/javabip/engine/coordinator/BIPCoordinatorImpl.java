@@ -19,6 +19,7 @@
 package org.javabip.engine.coordinator;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
@@ -26,21 +27,26 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import net.sf.javabdd.BDD;
 import net.sf.javabdd.BDDFactory;
 
+import org.javabip.api.Accept;
 import org.javabip.api.BIPActor;
 import org.javabip.api.BIPComponent;
 import org.javabip.api.BIPGlue;
 import org.javabip.api.Behaviour;
 import org.javabip.api.OrchestratedExecutor;
 import org.javabip.api.Port;
+import org.javabip.api.Require;
 import org.javabip.engine.api.BDDBIPEngine;
 import org.javabip.engine.api.BIPCoordinator;
 import org.javabip.engine.api.BehaviourEncoder;
 import org.javabip.engine.api.CurrentStateEncoder;
+import org.javabip.engine.api.ExecutionBackend;
 import org.javabip.engine.api.GlueEncoder;
 import org.javabip.engine.api.InteractionExecutor;
 import org.javabip.exceptions.BIPEngineException;
@@ -83,6 +89,12 @@ public class BIPCoordinatorImpl implements BIPCoordinator, Runnable {
 
 	private ArrayList<BIPComponent> registeredComponents = new ArrayList<BIPComponent>();
 
+	/**
+	 * Helper hashtable with the registered components as the keys and their positions in registeredComponents as the
+	 * values, used to index the participants of the chosen interactions.
+	 */
+	private Hashtable<BIPComponent, Integer> componentIndices = new Hashtable<BIPComponent, Integer>();
+
 	/**
 	 * Helper hashtable with integers representing the local identities of registered components as the keys and the
 	 * Behaviours of these components as the values.
@@ -95,9 +107,61 @@ public class BIPCoordinatorImpl implements BIPCoordinator, Runnable {
 	 */
 	private Hashtable<String, ArrayList<BIPComponent>> typeInstancesMapping = new Hashtable<String, ArrayList<BIPComponent>>();
 	/**
-	 * Helper hashset of the components that have informed in an execution cycle.
+	 * Barrier that records the components that have informed in an execution cycle. The runOneIteration() function of
+	 * the BDDBIPEngine class can be called once all registered components have informed the BIPCoordinator about their
+	 * current state.
+	 */
+	private CycleBarrier<BIPComponent> componentsHaveInformed = new CycleBarrier<BIPComponent>();
+
+	/**
+	 * The informs of the components that have not been encoded yet. Components post their informs without locking
+	 * and the engine thread drains the queue, and encodes the current states, before each execution cycle.
+	 */
+	private ConcurrentLinkedQueue<StateInform> pendingInforms = new ConcurrentLinkedQueue<StateInform>();
+
+	/**
+	 * The components whose informs have been taken by the engine thread and that have not been notified of an
+	 * interaction since. Only accessed by the engine thread.
+	 */
+	private HashSet<BIPComponent> informedComponents = new HashSet<BIPComponent>();
+
+	/**
+	 * The informed components none of whose ports was enabled in their last inform. When the non participants are not
+	 * notified, only these components keep their last informed state. Only accessed by the engine thread.
+	 */
+	private HashSet<BIPComponent> idleComponents = new HashSet<BIPComponent>();
+
+	/**
+	 * Whether the engine starts an execution cycle before all the components have informed, as soon as an interaction
+	 * that does not depend on the missing components can be chosen.
+	 */
+	private boolean partialInformScheduling = false;
+
+	/**
+	 * Maximum number of interactions whose participants have not all informed yet. Above one, the components that do
+	 * not participate in an interaction are not notified and the next interaction is chosen while the previous ones
+	 * execute, among the components they do not involve.
+	 */
+	private int maxOutstandingInteractions = 1;
+
+	/**
+	 * Whether the components that do not participate in the chosen interactions are notified, by sending null to them,
+	 * and have to inform again before the next execution cycle. If not, the non participants none of whose ports was
+	 * enabled in their last inform are not notified: their last informed state is kept by the engine and they are not
+	 * awaited. The other non participants are still notified.
 	 */
-	private HashSet<BIPComponent> componentsHaveInformed = new HashSet<BIPComponent>();
+	private boolean notifyNonParticipants = true;
+
+	/**
+	 * The participants of the outstanding interactions that have not informed yet, one set per interaction. Only
+	 * accessed by the engine thread.
+	 */
+	private ArrayList<Set<BIPComponent>> outstandingInteractions = new ArrayList<Set<BIPComponent>>();
+
+	/**
+	 * The thread running the engine loop, which also notifies the components of the chosen interactions.
+	 */
+	private ExecutionBackend executionBackend = ExecutionBackend.PLATFORM_ENGINE_THREAD;
 
 	/** Number of ports of components registered */
 	private int nbPorts;
@@ -110,29 +174,31 @@ public class BIPCoordinatorImpl implements BIPCoordinator, Runnable {
 
 	/**
 	 * If a component does not have any enforceable transitions, it will not inform the engine. This integer should be
-	 * used to set the haveAllComponentsInformed semaphore
+	 * used to size the componentsHaveInformed barrier
 	 */
 	// public int nbComponentsWithEnforceableTransitions;
 
-	/** Thread for the BIPCoordinator */
-	private Thread engineThread;
+	/** Thread for the BIPCoordinator, read by the threads that stop the engine. */
+	private volatile Thread engineThread;
 
 	/**
 	 * Boolean variable that shows whether the execute() was called.
 	 */
-	private boolean isEngineExecuting = false;
+	private volatile boolean isEngineExecuting = false;
 
 	/**
-	 * Boolean field that shows whether the haveAllComponentsInformed semaphore is acquired for the number of components
-	 * and therefore, the components can start informing the engine and releasing the semaphore.
+	 * The life cycle of the engine thread: created, running once started, stopping once a shutdown is requested and
+	 * terminated once the engine thread has returned.
 	 */
-	private boolean isEngineSemaphoreReady = false;
+	private enum Lifecycle {
+		CREATED, RUNNING, STOPPING, TERMINATED
+	}
+
+	private AtomicReference<Lifecycle> lifecycle = new AtomicReference<Lifecycle>(Lifecycle.CREATED);
+
+	/** Number of execution cycles in which interactions were executed, written by the engine thread only. */
+	private volatile long nbCycles = 0;
 
-	/**
-	 * Semaphore that controls when the runOneIteration() function of the BDDBIPEngine class can be called. It can be
-	 * called after all registered components have inform the BIPCoordinator about their current state.
-	 */
-	private Semaphore haveAllComponentsInformed;
 	private ActorContext typedActorContext;
 	private Object typedActorSelf;
 
@@ -197,6 +263,28 @@ public class BIPCoordinatorImpl implements BIPCoordinator, Runnable {
 		engine.totalBehaviourBDD();
 	}
 
+	/**
+	 * Counts the glue constraint instances, i.e. one per registered instance of the effect component type of each
+	 * require and accept constraint.
+	 */
+	private int nbGlueConstraints() {
+		int nbGlueConstraints = 0;
+		if (glueHolder == null) {
+			return nbGlueConstraints;
+		}
+		for (Require require : glueHolder.getRequiresConstraints()) {
+			if (require.getEffect() != null && typeInstancesMapping.containsKey(require.getEffect().getSpecType())) {
+				nbGlueConstraints += typeInstancesMapping.get(require.getEffect().getSpecType()).size();
+			}
+		}
+		for (Accept accept : glueHolder.getAcceptConstraints()) {
+			if (accept.getEffect() != null && typeInstancesMapping.containsKey(accept.getEffect().getSpecType())) {
+				nbGlueConstraints += typeInstancesMapping.get(accept.getEffect().getSpecType()).size();
+			}
+		}
+		return nbGlueConstraints;
+	}
+
 	public BIPComponent getComponentFromObject(Object component) {
 		return objectToComponent.get(component);
 	}
@@ -277,6 +365,8 @@ public class BIPCoordinatorImpl implements BIPCoordinator, Runnable {
 
 			componentInstances.add(executorActor);
 			typeInstancesMapping.put(executorActor.getType(), componentInstances);
+			componentsHaveInformed.register(executorActor);
+			componentIndices.put(executorActor, registeredComponents.size());
 			registeredComponents.add(executorActor);
 
 			/*
@@ -328,15 +418,32 @@ public class BIPCoordinatorImpl implements BIPCoordinator, Runnable {
 	 * If the guards of a transition do not have information valuable for data transfer then only this inform is called
 	 * for a particular component. Otherwise, also the other inform function is called.
 	 */
-	public synchronized void inform(BIPComponent component, String currentState, Set<Port> disabledPorts) {
-		// long time1 = System.currentTimeMillis();
-		if (componentsHaveInformed.contains(component)) {
+	public void inform(BIPComponent component, String currentState, Set<Port> disabledPorts) {
+		/**
+		 * This condition checks whether the component has already registered.
+		 */
+		if (!componentsHaveInformed.isRegistered(component)) {
+			try {
+				logger.error("No component with name" + component.getId() + " specified in the inform 	was registered."
+						+ "\tPossible reason: "
+						+ "Name attribute in ComponentType annotation does not match the name of the Class.");
+				throw new BIPEngineException("Component " + component.getId()
+						+ " specified in the inform was registered." + "\tPossible reason: "
+						+ "Name attribute in ComponentType annotation does not match the name of the Class.");
+			} catch (BIPEngineException e) {
+				// e.printStackTrace();
+			}
+			return;
+		}
+
+		/*
+		 * If a component informs more than once in the same execution cycle, its inform is ignored in order to prevent
+		 * the re-computation of the current state BDD for the specific component.
+		 */
+		if (!componentsHaveInformed.stamp(component)) {
 			try {
 				logger.debug("************************ Already Have Informed *******************************");
 				logger.debug("Component: " + component + "informs that is at state: " + currentState);
-				// for (Port disabledPort : disabledPorts) {
-				// logger.debug("with disabled port: " + disabledPort.getId());
-				// }
 				logger.debug("******************************************************************************");
 				logger.error("Component " + component.getId()
 						+ " has already informed the engine in this execution cycle.");
@@ -348,65 +455,73 @@ public class BIPCoordinatorImpl implements BIPCoordinator, Runnable {
 			return;
 		}
 
+		logger.debug("********************************* Inform *************************************");
+		logger.debug("Component: " + component + "informs that is at state: " + currentState);
+		logger.debug("******************************************************************************");
+
 		/*
-		 * If a component informs more than once in the same execution cycle we add the else below to prevent the
-		 * re-computation of the current state BDD for the specific component. The deletion of the else will not result
-		 * in any data corruption but overhead will be added.
-		 */
-		/**
-		 * This condition checks whether the component has already registered.
+		 * The inform is queued before the last component to inform wakes the engine thread up, so that the engine
+		 * thread finds all the informs of the cycle in the queue. The current state BDD is computed by the engine
+		 * thread.
 		 */
-		if (registeredComponents.contains(component)) {
-			synchronized (componentsHaveInformed) {
-				componentsHaveInformed.add(component);
-				try {
-					engine.informCurrentState(component, currstenc.inform(component, currentState, disabledPorts));
-				} catch (BIPEngineException e) {
-					e.printStackTrace();
-				}
-
-				// logger.trace("Number of components that have informed {}",
-				// componentsHaveInformed.size());
-				logger.debug("********************************* Inform *************************************");
-				logger.debug("Component: " + component + "informs that is at state: " + currentState);
-				// for (Port disabledPort : disabledPorts) {
-				// logger.debug("with disabled port: " + disabledPort.getId());
-				// }
-				logger.debug("******************************************************************************");
+		pendingInforms.offer(new StateInform(component, currentState, disabledPorts));
+		componentsHaveInformed.arrive();
+		logger.trace("Number of components that have informed: {}", componentsHaveInformed.getNbArrived());
+	}
 
-				/*
-				 * The haveAllComponentsInformed semaphore is used to indicate whether all registered components have
-				 * informed and to order one execution cycle of the engine. The semaphore is acquired in run().
-				 * 
-				 * When a component informs, we first check if the haveAllComponentsInformed semaphore has been acquired
-				 * before and then we release.
-				 * 
-				 * This block is synchronized with the number of components that have informed. Therefore, the
-				 * haveAllComponentsInformed semaphore cannot be released by any other component at the same time.
-				 */
-				if (isEngineSemaphoreReady) {
-					haveAllComponentsInformed.release();
-					logger.trace("Number of available permits in the semaphore: {}",
-							haveAllComponentsInformed.availablePermits());
+	/**
+	 * Encodes the current states of the components that have informed since the last call and sends them to the
+	 * engine. It is called by the engine thread only, before each execution cycle.
+	 */
+	private void informPendingStates() {
+		int nbInforms = 0;
+		StateInform stateInform;
+		while ((stateInform = pendingInforms.poll()) != null) {
+			nbInforms++;
+			informedComponents.add(stateInform.component);
+			if (!notifyNonParticipants) {
+				if (hasEnabledPorts(stateInform.component, stateInform.currentState, stateInform.disabledPorts)) {
+					idleComponents.remove(stateInform.component);
+				} else {
+					idleComponents.add(stateInform.component);
 				}
 			}
-			/**
-			 * An exception is thrown when a component informs the Coordinator without being registered first.
-			 */
-		} else {
 			try {
-				logger.error("No component with name" + component.getId() + " specified in the inform 	was registered."
-						+ "\tPossible reason: "
-						+ "Name attribute in ComponentType annotation does not match the name of the Class.");
-				throw new BIPEngineException("Component " + component.getId()
-						+ " specified in the inform was registered." + "\tPossible reason: "
-						+ "Name attribute in ComponentType annotation does not match the name of the Class.");
+				engine.informCurrentState(stateInform.component,
+						currstenc.inform(stateInform.component, stateInform.currentState, stateInform.disabledPorts));
 			} catch (BIPEngineException e) {
-				// e.printStackTrace();
+				e.printStackTrace();
+			}
+		}
+		componentsHaveInformed.consume(nbInforms);
+
+		for (Iterator<Set<BIPComponent>> interactions = outstandingInteractions.iterator(); interactions.hasNext();) {
+			Set<BIPComponent> participants = interactions.next();
+			participants.removeAll(informedComponents);
+			if (participants.isEmpty()) {
+				interactions.remove();
 			}
 		}
-		// System.out.println("BC:" + (System.currentTimeMillis() - time1));
+	}
 
+	/**
+	 * @return whether one of the ports of the component in the given state is not among the disabled ports.
+	 */
+	private boolean hasEnabledPorts(BIPComponent component, String currentState, Set<Port> disabledPorts) {
+		Set<Port> statePorts = componentBehaviourMapping.get(component).getStateToPorts().get(currentState);
+		if (statePorts == null) {
+			return false;
+		}
+		Set<String> disabledPortIds = new HashSet<String>();
+		for (Port disabledPort : disabledPorts) {
+			disabledPortIds.add(disabledPort.getId());
+		}
+		for (Port port : statePorts) {
+			if (!disabledPortIds.contains(port.getId())) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -423,6 +538,18 @@ public class BIPCoordinatorImpl implements BIPCoordinator, Runnable {
 		}
 	}
 
+	public void execute(List<byte[]> valuations) throws BIPEngineException {
+		if (interactionExecutor != this && isEngineExecuting) {
+			interactionExecutor.execute(valuations);
+		} else if (isEngineExecuting) {
+			List<List<Port>> portsToFire = new ArrayList<List<Port>>();
+			for (byte[] valuation : valuations) {
+				portsToFire.addAll(preparePorts(valuation));
+			}
+			executeInteractions(portsToFire);
+		}
+	}
+
 	private List<List<Port>> preparePorts(byte[] valuation) {
 		/*
 		 * Prepare the list of ports to be executed.
@@ -462,35 +589,44 @@ public class BIPCoordinatorImpl implements BIPCoordinator, Runnable {
 	 */
 	public void executeInteractions(List<List<Port>> portsToFire) throws BIPEngineException {
 
+		nbCycles++;
 		if (portsToFire == null) {
 			logger.warn("BIP Coordinator: Empty interaction requested for execution -- nothing to do.");
 
 			/*
 			 * Send null to the components that are not part of the overall interaction.
 			 */
-			for (BIPComponent component : registeredComponents) {
+			for (BIPComponent component : informedComponents) {
 				component.execute(null);
-
 			}
+			informedComponents.clear();
 
 			return;
 		}
 		assert (portsToFire != null);
 
 		/*
-		 * This is a list of components participating in the chosen-by-the-engine interactions. This keeps track of the
-		 * chosen components in order to differentiate them from the non chosen ones. Through this function all the
-		 * components need to be notified. Either by sending null to them or the port to be fired.
+		 * The indices of the components participating in the chosen-by-the-engine interactions. This keeps track of the
+		 * chosen components in order to differentiate them from the non chosen ones, which are notified by sending null
+		 * to them.
 		 */
-		ArrayList<BIPComponent> waitingComponents = (ArrayList<BIPComponent>) registeredComponents.clone();
+		BitSet participantIndices = new BitSet(registeredComponents.size());
+		ArrayList<BIPComponent> participants = new ArrayList<BIPComponent>();
 		for (Iterable<Port> portGroup : portsToFire) {
+			/*
+			 * The engine may be stopped between two interactions, but an interaction is always sent to all its
+			 * participants.
+			 */
+			if (!isEngineExecuting) {
+				break;
+			}
 			Iterator<Port> ports = portGroup.iterator();
-			while (ports.hasNext() && isEngineExecuting) {
+			while (ports.hasNext()) {
 				Port port = ports.next();
 				/*
 				 * Throw an exception if the port is empty. This should not happen.
 				 */
-				if (port.getId().isEmpty() && isEngineExecuting) {
+				if (port.getId().isEmpty()) {
 					try {
 						logger.error("Exception in thread: " + Thread.currentThread().getName()
 								+ "In the interaction chosen by the engine the port, associated to component "
@@ -528,23 +664,57 @@ public class BIPCoordinatorImpl implements BIPCoordinator, Runnable {
 				/* Execute the port */
 
 				logger.debug("Chosen port: " + port.getId() + " of component: " + port.component().getId());
-				if (isEngineExecuting)
-					port.component().execute(port.getId());
+				port.component().execute(port.getId());
 
 				/*
-				 * Remove the corresponding component from the list of those that do not move
+				 * Mark the corresponding component as one that moves
 				 */
-				waitingComponents.remove(port.component());
+				Integer index = componentIndices.get(port.component());
+				if (index != null && !participantIndices.get(index)) {
+					participantIndices.set(index);
+					participants.add(port.component());
+				}
 			}
 		}
 
 		/*
-		 * Send null to the components that are not part of the overall interaction.
+		 * When several interactions may be outstanding, the components that are not part of the overall interaction
+		 * are not notified: their current state does not change, hence their inform remains valid for the next
+		 * interactions. The participants have to inform again before taking part in another interaction.
 		 */
-		for (BIPComponent component : waitingComponents) {
-			component.execute(null);
+		if (maxOutstandingInteractions > 1) {
+			informedComponents.removeAll(participants);
+			outstandingInteractions.add(new HashSet<BIPComponent>(participants));
+			return;
+		}
+		if (!notifyNonParticipants) {
+			informedComponents.removeAll(participants);
+			/*
+			 * The non participants with enabled ports are notified, since they may move on their own or enable other
+			 * ports once they know that none of their ports has been chosen. Only the idle ones keep their inform.
+			 */
+			for (Iterator<BIPComponent> components = informedComponents.iterator(); components.hasNext();) {
+				BIPComponent component = components.next();
+				if (!idleComponents.contains(component)) {
+					component.execute(null);
+					components.remove();
+				}
+			}
+			return;
 		}
 
+		/*
+		 * Send null to the components that are not part of the overall interaction. The components that have not
+		 * informed, which can only happen with partial inform scheduling, are busy and are not notified.
+		 */
+		for (BIPComponent component : informedComponents) {
+			Integer index = componentIndices.get(component);
+			if (index == null || !participantIndices.get(index)) {
+				component.execute(null);
+			}
+		}
+		informedComponents.clear();
+
 	}
 
 	/**
@@ -560,7 +730,7 @@ public class BIPCoordinatorImpl implements BIPCoordinator, Runnable {
 		 * Wait until the execute() has been called signaling that all the components have registered
 		 */
 		synchronized (this) {
-			while (!isEngineExecuting) {
+			while (!isEngineExecuting && isRunning()) {
 				try {
 					logger.trace("Waiting for the engine execute to be called...");
 					wait();
@@ -570,6 +740,9 @@ public class BIPCoordinatorImpl implements BIPCoordinator, Runnable {
 				}
 			}
 		}
+		if (!isRunning()) {
+			return;
+		}
 
 		/*
 		 * For the moment, all components must be registered before execute() is called. Therefore the engine might as
@@ -582,48 +755,51 @@ public class BIPCoordinatorImpl implements BIPCoordinator, Runnable {
 
 		/*
 		 * To order the engine to begin its execution cycle we need to know first whether all components have informed
-		 * the BIP Coordinator about their current state. For this reason, the semaphore haveAllComponentsInformed is
-		 * used that it is initialized here with the number of registered components in the system. Note that, if
-		 * components can be registered and unregistered on the fly the semaphore has to be updated with the new number
-		 * of components in the system.
+		 * the BIP Coordinator about their current state. For this reason, the engine thread waits on the
+		 * componentsHaveInformed barrier until all the registered components in the system have arrived. Note that, if
+		 * components can be registered and unregistered on the fly the barrier has to be updated with the new
+		 * components in the system.
 		 * 
-		 * Acquire permits for the number of registered components, which have not informed about their current state
-		 * yet. NB: Components may have inform the BIPCoordinator before the execute() is called
+		 * NB: Components may have inform the BIPCoordinator before the execute() is called, they have then already
+		 * arrived.
 		 */
-		synchronized (componentsHaveInformed) {
-			haveAllComponentsInformed = new Semaphore(nbComponents);
+		if ((partialInformScheduling || maxOutstandingInteractions > 1 || !notifyNonParticipants)
+				&& interactionExecutor != this) {
+			logger.warn("Partial inform scheduling, outstanding interactions and not notifying the non participants are not supported with data transfer, all the components have to inform before each execution cycle.");
+			partialInformScheduling = false;
+			maxOutstandingInteractions = 1;
+			notifyNonParticipants = true;
+		}
+		/* The next interactions can only be chosen before all the components have informed */
+		partialInformScheduling = partialInformScheduling || maxOutstandingInteractions > 1;
+		if (!partialInformScheduling) {
 			try {
-				logger.trace("Waiting for the engine semaphore to be initialized to 0...");
-				haveAllComponentsInformed.acquire(nbComponents);
-				isEngineSemaphoreReady = true;
-				logger.trace("Engine semaphore initialised");
+				logger.trace("Waiting for the cycle initialisation barrier...");
+				componentsHaveInformed.awaitAll();
+				logger.trace("The cycle initialisation barrier passed");
 			} catch (InterruptedException e1) {
-				logger.error("Semaphore's haveAllComponentsInformed acquire method for the number of registered components in the system was interrupted.");
+				logger.error("Waiting for the registered components in the system to inform was interrupted.");
 				// e1.printStackTrace();
+				if (!isRunning()) {
+					return;
+				}
 			}
 		}
 
-		try {
-			logger.trace("Waiting for the cycle initialisation acquire...");
-			haveAllComponentsInformed.acquire(nbComponents - componentsHaveInformed.size());
-			logger.trace("The cycle initialisation acquire successful");
-		} catch (InterruptedException e1) {
-			logger.error("Semaphore's haveAllComponentsInformed acquire method for the number of components that still have to inform was interrupted.");
-			// e1.printStackTrace();
-		}
-
 		/*
 		 * Compute behaviour and glue BDDs with the components that have registered before the call to execute(). If
 		 * components were to register after the call to execute() these BDDs must be recomputed accordingly.
 		 */
-		// For performance info
-		// long startTime = System.currentTimeMillis();
-		computeTotalBehaviour();
-		computeTotalGlueAndInformEngine();
-		// For performance info
-		// long estimatedTime = System.currentTimeMillis() - startTime;
-		// System.out.println("Init time : " + estimatedTime);
-
+		engine.informModelSize(nbComponents, nbStates, nbPorts, nbGlueConstraints());
+		engine.specifyModelFingerprint(ModelFingerprint.compute(registeredComponents, componentBehaviourMapping,
+				glueHolder));
+		if (engine.restoreTotalConstraints()) {
+			logger.info("Total behaviour and glue restored from a snapshot of the model.");
+		} else {
+			engine.informVariableOrdering(glueenc.variableOrdering());
+			computeTotalBehaviour();
+			computeTotalGlueAndInformEngine();
+		}
 	}
 
 	public void run() {
@@ -641,68 +817,243 @@ public class BIPCoordinatorImpl implements BIPCoordinator, Runnable {
 		/**
 		 * Start the Engine cycle
 		 */
+		try {
+			if (partialInformScheduling) {
+				runPartialInformCycles();
+			} else {
+				runCycles();
+			}
+		} finally {
+			lifecycle.set(Lifecycle.TERMINATED);
+			logger.info("Engine thread is terminated after {} cycles.", nbCycles);
+			logger.info("Current state BDDs: {} found in the cache, {} computed.", currstenc.getCacheHits(),
+					currstenc.getCacheMisses());
+		}
+
+		// TODO: unregister components and notify the component that the engine is not working
+		// for (BIPComponent component : identityMapping.values()) {
+		// component.deregister();
+		// }
+
+		return;
+	}
 
-		while (isEngineExecuting) {
+	/**
+	 * Enables or disables partial inform scheduling, see runPartialInformCycles(). It must be called before the engine
+	 * is started.
+	 */
+	public void setPartialInformScheduling(boolean partialInformScheduling) {
+		this.partialInformScheduling = partialInformScheduling;
+	}
+
+	/**
+	 * Sets the maximum number of interactions whose participants have not all informed yet. It must be called before
+	 * the engine is started. Above one, partial inform scheduling is enabled as well.
+	 */
+	public void setMaxOutstandingInteractions(int maxOutstandingInteractions) {
+		if (maxOutstandingInteractions < 1) {
+			logger.error("The maximum number of outstanding interactions must be positive.");
+			throw new BIPEngineException("The maximum number of outstanding interactions must be positive.");
+		}
+		this.maxOutstandingInteractions = maxOutstandingInteractions;
+	}
+
+	/**
+	 * Sets whether the components that do not participate in the chosen interactions are notified. If not, those none
+	 * of whose ports was enabled keep their last informed state until they participate in an interaction. It must be
+	 * called before the engine is started.
+	 */
+	public void setNotifyNonParticipants(boolean notifyNonParticipants) {
+		this.notifyNonParticipants = notifyNonParticipants;
+	}
+
+	/**
+	 * Sets the thread running the engine loop, which also notifies the components. It must be called before the engine
+	 * is started.
+	 */
+	public void setExecutionBackend(ExecutionBackend executionBackend) {
+		if (executionBackend == null) {
+			logger.error("The execution backend of the engine must not be null.");
+			throw new BIPEngineException("The execution backend of the engine must not be null.");
+		}
+		if (executionBackend == ExecutionBackend.VIRTUAL_ENGINE_THREAD && !EngineThreads.isVirtualThreadSupported()) {
+			logger.warn("Virtual threads are not supported by this JVM, the engine runs on a platform thread.");
+		}
+		this.executionBackend = executionBackend;
+	}
+
+	/**
+	 * Execution cycles that start once all the registered components have informed.
+	 */
+	private void runCycles() {
+		while (isEngineExecuting && isRunning()) {
 
 			logger.trace("isEngineExecuting: {} ", isEngineExecuting);
-			logger.trace("noComponents: {}, componentCounter: {}", nbComponents, componentsHaveInformed.size());
-			logger.trace("Number of available permits in the semaphore: {}",
-					haveAllComponentsInformed.availablePermits());
+			logger.trace("noComponents: {}, componentCounter: {}", nbComponents, componentsHaveInformed.getNbArrived());
 
-			componentsHaveInformed.clear();
+			informPendingStates();
+			componentsHaveInformed.nextCycle();
 
 			try {
-
-				// long time1 = System.currentTimeMillis();
 				engine.runOneIteration();
-				// System.out.printf("E: %s ", (System.currentTimeMillis() - time1));
 			} catch (BIPEngineException e1) {
 
 				isEngineExecuting = false;
 				// e1.printStackTrace();
 			}
-
 			try {
-				logger.trace("Waiting for the acquire in run()...");
-				haveAllComponentsInformed.acquire(nbComponents);
+				logger.trace("Waiting for the barrier in run()...");
+				if (notifyNonParticipants) {
+					informedComponents.clear();
+					componentsHaveInformed.awaitAll();
+				} else {
+					/* Only the components that are not informed any more, the participants, inform again */
+					componentsHaveInformed.awaitArrivals(registeredComponents.size() - informedComponents.size());
+				}
 
-				logger.trace("run() acquire successful.");
+				logger.trace("run() barrier passed.");
 			} catch (InterruptedException e) {
 				isEngineExecuting = false;
 				// e.printStackTrace();
-				// logger.error("Semaphore's haveAllComponentsInformed acquire method for the number of registered components in the system was interrupted.");
 			}
 		}
+	}
 
-		// TODO: unregister components and notify the component that the engine is not working
-		// for (BIPComponent component : identityMapping.values()) {
-		// component.deregister();
-		// }
+	/**
+	 * Execution cycles that start as soon as some components have informed. The components that have not informed yet
+	 * are busy: all their ports are disabled and they are not notified of the chosen interaction. The engine only
+	 * executes an interaction that stays maximal whatever the busy components inform, otherwise the engine thread
+	 * waits for more components to inform and tries again.
+	 * 
+	 * Not supported with data transfer, since the DataCoordinator needs the informs of all the components to compute
+	 * the disabled combinations.
+	 */
+	private void runPartialInformCycles() {
+		while (isEngineExecuting && isRunning()) {
+
+			informPendingStates();
+			logger.trace("Number of components that have informed: {}", informedComponents.size());
+			boolean executed = false;
+			if (!informedComponents.isEmpty() && outstandingInteractions.size() < maxOutstandingInteractions) {
+				for (BIPComponent component : registeredComponents) {
+					if (!informedComponents.contains(component)) {
+						engine.informBusy(component);
+					}
+				}
+				componentsHaveInformed.nextCycle();
+				try {
+					executed = engine.tryRunOneIteration();
+				} catch (BIPEngineException e1) {
+					isEngineExecuting = false;
+				}
+			}
 
-		return;
+			if (!executed) {
+				try {
+					logger.trace("Waiting for another component to inform...");
+					componentsHaveInformed.awaitArrivals(1);
+				} catch (InterruptedException e) {
+					isEngineExecuting = false;
+				}
+			}
+		}
 	}
 
 	/**
 	 * Create a thread for the Engine and start it.
 	 */
 	public void start() {
+		if (!lifecycle.compareAndSet(Lifecycle.CREATED, Lifecycle.RUNNING)) {
+			logger.error("The engine has already been started.");
+			throw new BIPEngineException("The engine has already been started.");
+		}
 		delayedSpecifyGlue(glueHolder);
-		engineThread = new Thread(this, "BIPEngine");
+		engineThread = EngineThreads.newThread(this, "BIPEngine",
+				executionBackend == ExecutionBackend.VIRTUAL_ENGINE_THREAD);
 		engineThread.start();
 	}
 
 	/**
-	 * Interrupt the Engine thread.
+	 * Stops the engine thread without draining, see shutdown(), and waits for it to terminate. The engine thread
+	 * returns at the end of the interaction it is sending, or of the BDD computation it is doing.
 	 */
 	public void stop() {
+		requestShutdown(false);
+		if (Thread.currentThread() == engineThread) {
+			return;
+		}
+		try {
+			engineThread.join();
+		} catch (InterruptedException e) {
+			logger.warn("Waiting for the engine thread to terminate was interrupted.");
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Stops the engine thread and waits for it to terminate.
+	 * 
+	 * @param drain
+	 *            if true, the interactions being executed are sent to all their participants before the engine thread
+	 *            returns, otherwise the engine thread is interrupted and stops after the interaction it is sending.
+	 * @param timeout
+	 *            the maximum time to wait for the engine thread to terminate, no wait if not positive.
+	 * @param unit
+	 *            the unit of the timeout.
+	 * @return the number of execution cycles in which interactions were executed.
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting.
+	 */
+	public long shutdown(boolean drain, long timeout, TimeUnit unit) throws InterruptedException {
+		requestShutdown(drain);
+		long timeoutMillis = unit.toMillis(timeout);
+		if (timeoutMillis > 0) {
+			engineThread.join(timeoutMillis);
+		}
+		if (engineThread.isAlive()) {
+			logger.warn("The engine thread has not terminated within {} ms.", timeoutMillis);
+		}
+		return nbCycles;
+	}
+
+	/**
+	 * Moves the engine to the stopping state and wakes the engine thread up if it waits. The engine thread checks the
+	 * state between execution cycles and is never stopped while it computes, so that the BDD manager stays consistent.
+	 */
+	private void requestShutdown(boolean drain) {
 		if (engineThread == null) {
 			logger.error("Stoping the engine before starting it.");
 			throw new BIPEngineException("Stoping the engine before starting it.");
 		}
-		isEngineExecuting = false;
-		engineThread.stop();
-		// engineThread.interrupt();
+		if (!lifecycle.compareAndSet(Lifecycle.RUNNING, Lifecycle.STOPPING)) {
+			logger.warn("The engine is already stopping or terminated.");
+		}
+		synchronized (this) {
+			notifyAll();
+		}
+		componentsHaveInformed.cancel();
+		if (!drain) {
+			isEngineExecuting = false;
+			engineThread.interrupt();
+		}
+	}
 
+	private boolean isRunning() {
+		return lifecycle.get() == Lifecycle.RUNNING;
+	}
+
+	/**
+	 * @return the number of execution cycles in which interactions were executed so far.
+	 */
+	public long getNbCycles() {
+		return nbCycles;
+	}
+
+	/**
+	 * @return true once the engine thread has returned.
+	 */
+	public boolean isTerminated() {
+		return lifecycle.get() == Lifecycle.TERMINATED;
 	}
 
 	/**
@@ -713,11 +1064,10 @@ public class BIPCoordinatorImpl implements BIPCoordinator, Runnable {
 	 * synchronized(this).
 	 * 
 	 * At this implementation, we assume that components have been registered before the execute() is called and
-	 * therefore we are aware of the number of components in the system and can initialize the semaphore that shows
-	 * whether all registered components have informed. In future, that components may be able to register on the fly
-	 * the semaphore needs be re-initialized with the new number of components. If a component unregisters from the
-	 * system then we can use the reducePermits(int reduction) on the semaphore to shrink the number of available
-	 * permits by the indicated reduction.
+	 * therefore we are aware of the number of components in the system that the barrier showing whether all
+	 * registered components have informed waits for. In future, that components may be able to register on the fly
+	 * the barrier needs to register the new components. If a component unregisters from the system then it has to be
+	 * removed from the barrier as well.
 	 * 
 	 * We also check here if the interactionExecutor has been set to DataCoordinator. Otherwise set it to
 	 * BIPCoordinator.
@@ -851,4 +1201,21 @@ public class BIPCoordinatorImpl implements BIPCoordinator, Runnable {
 		this.typedActorSelf = TypedActor.self();
 	}
 
+	/**
+	 * The information given by a component in an inform, kept until the engine thread encodes it.
+	 */
+	private static class StateInform {
+
+		private final BIPComponent component;
+		private final String currentState;
+		private final Set<Port> disabledPorts;
+
+		StateInform(BIPComponent component, String currentState, Set<Port> disabledPorts) {
+			this.component = component;
+			this.currentState = currentState;
+			this.disabledPorts = disabledPorts;
+		}
+
+	}
+
 }
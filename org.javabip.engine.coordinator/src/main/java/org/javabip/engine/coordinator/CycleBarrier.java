@@ -0,0 +1,159 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.javabip.engine.coordinator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Barrier between the components, which arrive when they inform, and the engine thread, which waits for all the
+ * registered components to have arrived before each execution cycle.
+ * 
+ * The cycles are numbered by an epoch. Each component holds the epoch of the last cycle in which it arrived, so that a
+ * second arrival in the same cycle is detected without any per-cycle clearing, and an arrival is always attributed to
+ * the cycle whose epoch it reads. The arrivals are counted by an atomic counter, from which the engine thread consumes
+ * the arrivals it has taken into account, and the engine thread is parked until the last awaited component arrives,
+ * which unparks it exactly once.
+ * 
+ * @param <P>
+ *            the type of the components taking part in the cycles.
+ */
+class CycleBarrier<P> {
+
+	/** Epoch of the last cycle in which each registered component has arrived. */
+	private Map<P, AtomicInteger> arrivalEpochs = new ConcurrentHashMap<P, AtomicInteger>();
+
+	/** Number of arrivals that have not been consumed by the engine thread yet. */
+	private AtomicInteger nbArrived = new AtomicInteger();
+
+	/** Epoch of the current cycle. The components registered have arrived in the cycle 0, that is no cycle. */
+	private volatile int epoch = 1;
+
+	/** Number of arrivals the engine thread is waiting for, meaningful only while it waits. */
+	private volatile int nbParties = Integer.MAX_VALUE;
+
+	private volatile Thread waiter;
+
+	/** Whether the barrier is cancelled, in which case the engine thread does not wait anymore. */
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Adds a component to the components that have to arrive in each cycle. Components must be registered before the
+	 * engine thread starts waiting.
+	 */
+	public void register(P party) {
+		arrivalEpochs.put(party, new AtomicInteger(0));
+	}
+
+	public boolean isRegistered(P party) {
+		return arrivalEpochs.containsKey(party);
+	}
+
+	/**
+	 * Stamps a registered component with the epoch of the current cycle. The arrival of the component is counted
+	 * separately by arrive(), so that the caller can publish what the engine thread needs in between.
+	 * 
+	 * @return false if the component has already been stamped in the current cycle, in which case it must not arrive.
+	 */
+	public boolean stamp(P party) {
+		AtomicInteger arrivalEpoch = arrivalEpochs.get(party);
+		int currentEpoch = epoch;
+		int previousEpoch = arrivalEpoch.get();
+		return previousEpoch != currentEpoch && arrivalEpoch.compareAndSet(previousEpoch, currentEpoch);
+	}
+
+	/**
+	 * Counts the arrival of a component stamped in the current cycle and wakes the engine thread up if it is the last
+	 * component to arrive.
+	 */
+	public void arrive() {
+		if (nbArrived.incrementAndGet() == nbParties) {
+			LockSupport.unpark(waiter);
+		}
+	}
+
+	public int getNbArrived() {
+		return nbArrived.get();
+	}
+
+	/**
+	 * Parks the calling thread until all the registered components have arrived in the current cycle. Only one thread,
+	 * the engine thread, may wait at a time.
+	 * 
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting.
+	 */
+	public void awaitAll() throws InterruptedException {
+		awaitArrivals(arrivalEpochs.size());
+	}
+
+	/**
+	 * Parks the calling thread until at least the given number of arrivals have not been consumed.
+	 * 
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting, or if the barrier is cancelled.
+	 */
+	public void awaitArrivals(int nbArrivals) throws InterruptedException {
+		waiter = Thread.currentThread();
+		nbParties = nbArrivals;
+		while (nbArrived.get() < nbParties) {
+			if (cancelled) {
+				nbParties = Integer.MAX_VALUE;
+				throw new InterruptedException("The cycle barrier is cancelled.");
+			}
+			LockSupport.park(this);
+			if (Thread.interrupted()) {
+				nbParties = Integer.MAX_VALUE;
+				throw new InterruptedException();
+			}
+		}
+		nbParties = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Cancels the barrier: the engine thread stops waiting, now or at its next wait, without being interrupted while
+	 * it computes.
+	 */
+	public void cancel() {
+		cancelled = true;
+		Thread currentWaiter = waiter;
+		if (currentWaiter != null) {
+			LockSupport.unpark(currentWaiter);
+		}
+	}
+
+	/**
+	 * Starts a new cycle. It is called by the engine thread before any of the components that have arrived can inform
+	 * again, i.e. before the interaction of the cycle is executed.
+	 */
+	public void nextCycle() {
+		epoch++;
+	}
+
+	/**
+	 * Consumes arrivals, once the engine thread has taken the informs of the corresponding components into account.
+	 * Components that arrive while the engine thread computes are not consumed and count for the next cycle.
+	 */
+	public void consume(int nbArrivals) {
+		nbArrived.addAndGet(-nbArrivals);
+	}
+
+}
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import net.sf.javabdd.BDD;
 import net.sf.javabdd.BDDFactory;
@@ -120,7 +121,7 @@ public class DataCoordinatorKernel implements BIPEngine, InteractionExecutor, Da
 	/**
 	 * Boolean variable that shows whether the execute() was called.
 	 */
-	private boolean isEngineExecuting = false;
+	private volatile boolean isEngineExecuting = false;
 
 	/**
 	 * Instantiates a new data coordinator implementation.
@@ -161,6 +162,16 @@ public class DataCoordinatorKernel implements BIPEngine, InteractionExecutor, Da
 
 	}
 
+	/**
+	 * Stops the engine and waits for it to terminate, see BIPCoordinator.shutdown().
+	 */
+	public long shutdown(boolean drain, long timeout, TimeUnit unit) throws InterruptedException {
+		if (!drain) {
+			isEngineExecuting = false;
+		}
+		return bipCoordinator.shutdown(drain, timeout, unit);
+	}
+
 	BIPGlue glueHolder;
 
 	public synchronized void specifyGlue(BIPGlue glue) {
@@ -437,6 +448,24 @@ public class DataCoordinatorKernel implements BIPEngine, InteractionExecutor, Da
 		logger.debug("*************************************************************************");
 	}
 
+	public void execute(List<byte[]> valuations) throws BIPEngineException {
+		if (interactionExecutor != this && isEngineExecuting) {
+			interactionExecutor.execute(valuations);
+		} else if (isEngineExecuting) {
+			List<List<Port>> portGroupsToExecute = new ArrayList<List<Port>>();
+			for (byte[] valuation : valuations) {
+				List<List<Port>> portGroups = preparePorts(valuation);
+				if (portGroups == null) {
+					portGroupsToExecute = null;
+					break;
+				}
+				portGroupsToExecute.addAll(portGroups);
+			}
+			executeInteractions(portGroupsToExecute);
+		}
+		logger.debug("*************************************************************************");
+	}
+
 	/**
 	 * BDDBIPEngine informs the BIPCoordinator for the components (and their associated ports) that are part of the same
 	 * chosen interaction.
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.javabip.engine.coordinator;
+
+import java.lang.reflect.Method;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the engine thread of the coordinator, either a platform thread or a virtual thread. Virtual threads are
+ * created by reflection, so that the engine still runs on JVMs without them, in which case platform threads are created
+ * instead.
+ */
+class EngineThreads {
+
+	private static Logger logger = LoggerFactory.getLogger(EngineThreads.class);
+
+	/** Thread.ofVirtual(), Thread.Builder.name(String) and Thread.Builder.unstarted(Runnable), null if unavailable */
+	private static Method ofVirtual;
+	private static Method name;
+	private static Method unstarted;
+
+	static {
+		try {
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			name = builder.getMethod("name", String.class);
+			unstarted = builder.getMethod("unstarted", Runnable.class);
+		} catch (Exception e) {
+			ofVirtual = null;
+			logger.debug("Virtual threads are not supported by this JVM.");
+		}
+	}
+
+	/**
+	 * @return true if the JVM supports virtual threads.
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return ofVirtual != null;
+	}
+
+	/**
+	 * Creates a thread that is not started yet.
+	 * 
+	 * @param runnable
+	 *            the code run by the thread.
+	 * @param threadName
+	 *            the name of the thread.
+	 * @param virtual
+	 *            whether a virtual thread is created, if the JVM supports them.
+	 */
+	public static Thread newThread(Runnable runnable, String threadName, boolean virtual) {
+		if (virtual && ofVirtual != null) {
+			try {
+				return (Thread) unstarted.invoke(name.invoke(ofVirtual.invoke(null), threadName), runnable);
+			} catch (Exception e) {
+				logger.warn("Creating a virtual thread failed, a platform thread is created instead.", e);
+			}
+		}
+		return new Thread(runnable, threadName);
+	}
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.javabip.engine.coordinator;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import org.javabip.api.Accept;
+import org.javabip.api.BIPGlue;
+import org.javabip.api.DataWire;
+import org.javabip.api.PortBase;
+import org.javabip.api.Require;
+
+/**
+ * Splits a glue into the glues of the clusters of component types that it connects. Two component types are in the
+ * same cluster if a require, accept or data wire constraint involves both of them, directly or through other types.
+ * The components of different clusters never interact, hence each cluster can be executed by its own engine.
+ */
+class GlueClusters {
+
+	/**
+	 * Computes the clusters of the component types mentioned in the glue.
+	 * 
+	 * @param glue
+	 *            the glue of the whole system.
+	 * @return for each component type mentioned in the glue, the glue of its cluster. The types of the same cluster
+	 *         share the same glue instance.
+	 */
+	public static Map<String, BIPGlue> split(BIPGlue glue) {
+		/* Union-find over the component types, each type being mapped to its parent */
+		Map<String, String> parents = new Hashtable<String, String>();
+		for (Require require : glue.getRequiresConstraints()) {
+			String effectType = require.getEffect().getSpecType();
+			find(parents, effectType);
+			for (List<PortBase> causes : require.getCauses()) {
+				for (PortBase cause : causes) {
+					union(parents, effectType, cause.getSpecType());
+				}
+			}
+		}
+		for (Accept accept : glue.getAcceptConstraints()) {
+			String effectType = accept.getEffect().getSpecType();
+			find(parents, effectType);
+			for (PortBase cause : accept.getCauses()) {
+				union(parents, effectType, cause.getSpecType());
+			}
+		}
+		for (DataWire dataWire : glue.getDataWires()) {
+			union(parents, dataWire.getFrom().getSpecType(), dataWire.getTo().getSpecType());
+		}
+
+		Map<String, ClusterGlue> rootGlues = new Hashtable<String, ClusterGlue>();
+		for (Require require : glue.getRequiresConstraints()) {
+			clusterGlue(rootGlues, parents, glue, require.getEffect().getSpecType()).requires.add(require);
+		}
+		for (Accept accept : glue.getAcceptConstraints()) {
+			clusterGlue(rootGlues, parents, glue, accept.getEffect().getSpecType()).accepts.add(accept);
+		}
+		for (DataWire dataWire : glue.getDataWires()) {
+			clusterGlue(rootGlues, parents, glue, dataWire.getFrom().getSpecType()).dataWires.add(dataWire);
+		}
+
+		Map<String, BIPGlue> typeGlues = new Hashtable<String, BIPGlue>();
+		for (String type : parents.keySet()) {
+			typeGlues.put(type, rootGlues.get(find(parents, type)));
+		}
+		return typeGlues;
+	}
+
+	/**
+	 * @return a glue without any constraint, for the components whose type is not mentioned in the glue.
+	 */
+	public static BIPGlue emptyGlue(BIPGlue glue) {
+		return new ClusterGlue(glue);
+	}
+
+	private static ClusterGlue clusterGlue(Map<String, ClusterGlue> rootGlues, Map<String, String> parents,
+			BIPGlue glue, String type) {
+		String root = find(parents, type);
+		ClusterGlue clusterGlue = rootGlues.get(root);
+		if (clusterGlue == null) {
+			clusterGlue = new ClusterGlue(glue);
+			rootGlues.put(root, clusterGlue);
+		}
+		return clusterGlue;
+	}
+
+	private static String find(Map<String, String> parents, String type) {
+		String parent = parents.get(type);
+		if (parent == null) {
+			parents.put(type, type);
+			return type;
+		}
+		if (parent.equals(type)) {
+			return type;
+		}
+		String root = find(parents, parent);
+		parents.put(type, root);
+		return root;
+	}
+
+	private static void union(Map<String, String> parents, String firstType, String secondType) {
+		String firstRoot = find(parents, firstType);
+		String secondRoot = find(parents, secondType);
+		if (!firstRoot.equals(secondRoot)) {
+			parents.put(firstRoot, secondRoot);
+		}
+	}
+
+	/**
+	 * The constraints of a cluster. Its XML representation is the one of the whole glue, which only serves to
+	 * fingerprint the model, together with the components of the cluster.
+	 */
+	private static class ClusterGlue implements BIPGlue {
+
+		private BIPGlue glue;
+		private List<Require> requires = new ArrayList<Require>();
+		private List<Accept> accepts = new ArrayList<Accept>();
+		private List<DataWire> dataWires = new ArrayList<DataWire>();
+
+		ClusterGlue(BIPGlue glue) {
+			this.glue = glue;
+		}
+
+		public List<Require> getRequiresConstraints() {
+			return requires;
+		}
+
+		public List<Accept> getAcceptConstraints() {
+			return accepts;
+		}
+
+		public List<DataWire> getDataWires() {
+			return dataWires;
+		}
+
+		public void toXML(OutputStream outputStream) {
+			glue.toXML(outputStream);
+		}
+
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javabip.engine.coordinator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.javabip.api.BIPComponent;
+import org.javabip.api.BIPGlue;
+import org.javabip.api.Behaviour;
+import org.javabip.api.Data;
+import org.javabip.api.Port;
+import org.javabip.exceptions.BIPEngineException;
+
+/**
+ * Computes a fingerprint of a model, i.e. of the registered components and of the glue. Two models with the same
+ * fingerprint have the same BDD variables, allocated in the same order, and the same constraints.
+ */
+public class ModelFingerprint {
+
+	private ModelFingerprint() {
+	}
+
+	/**
+	 * Computes the SHA-1 digest of the types, states, ports, transitions and data of the registered components, in
+	 * registration order, and of the XML representation of the glue. The transitions are given by the ports enabled
+	 * in each state, and the data by the data read by the guards and the transitions of each port.
+	 * 
+	 * @param registeredComponents
+	 *            the components, in registration order.
+	 * @param componentBehaviourMapping
+	 *            the behaviour of each component.
+	 * @param glue
+	 *            the glue, possibly null.
+	 * @return the digest as a hexadecimal string.
+	 * @throws BIPEngineException
+	 *             when the digest cannot be computed.
+	 */
+	public static String compute(List<BIPComponent> registeredComponents,
+			Map<BIPComponent, Behaviour> componentBehaviourMapping, BIPGlue glue) throws BIPEngineException {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			for (BIPComponent component : registeredComponents) {
+				Behaviour behaviour = componentBehaviourMapping.get(component);
+				update(digest, "type:" + component.getType());
+				/* The states are iterated in the same order as when their BDD variables were created */
+				for (String state : new ArrayList<String>(behaviour.getStates())) {
+					update(digest, "state:" + state);
+				}
+				for (Port port : behaviour.getEnforceablePorts()) {
+					update(digest, "port:" + port.getId());
+				}
+				Map<String, Set<Port>> stateToPorts = behaviour.getStateToPorts();
+				for (String state : new ArrayList<String>(behaviour.getStates())) {
+					Set<Port> statePorts = stateToPorts.get(state);
+					if (statePorts == null) {
+						continue;
+					}
+					List<String> portIds = new ArrayList<String>();
+					for (Port port : statePorts) {
+						portIds.add(port.getId());
+					}
+					Collections.sort(portIds);
+					for (String portId : portIds) {
+						update(digest, "transition:" + state + ":" + portId);
+					}
+				}
+				for (Port port : behaviour.getEnforceablePorts()) {
+					for (String data : dataNames(behaviour.portToDataInForGuard(port))) {
+						update(digest, "guard:" + port.getId() + ":" + data);
+					}
+					for (String data : dataNames(behaviour.portToDataInForTransition(port))) {
+						update(digest, "data:" + port.getId() + ":" + data);
+					}
+				}
+			}
+			if (glue != null) {
+				ByteArrayOutputStream glueXML = new ByteArrayOutputStream();
+				glue.toXML(glueXML);
+				digest.update(glueXML.toByteArray());
+			}
+
+			StringBuilder fingerprint = new StringBuilder();
+			for (byte b : digest.digest()) {
+				fingerprint.append(String.format("%02x", b));
+			}
+			return fingerprint.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new BIPEngineException("The fingerprint of the model cannot be computed: " + e.getMessage());
+		} catch (UnsupportedEncodingException e) {
+			throw new BIPEngineException("The fingerprint of the model cannot be computed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return the sorted names and types of the data.
+	 */
+	private static List<String> dataNames(Set<Data<?>> data) {
+		List<String> names = new ArrayList<String>();
+		if (data != null) {
+			for (Data<?> datum : data) {
+				names.add(datum.name() + ":" + datum.type().getName());
+			}
+		}
+		Collections.sort(names);
+		return names;
+	}
+
+	private static void update(MessageDigest digest, String value) throws UnsupportedEncodingException {
+		digest.update(value.getBytes("UTF-8"));
+		digest.update((byte) 0);
+	}
+
+}
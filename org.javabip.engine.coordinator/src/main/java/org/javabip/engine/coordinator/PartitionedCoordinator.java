@@ -0,0 +1,255 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.javabip.engine.coordinator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.javabip.api.BIPActor;
+import org.javabip.api.BIPComponent;
+import org.javabip.api.BIPEngine;
+import org.javabip.api.BIPGlue;
+import org.javabip.api.Port;
+import org.javabip.engine.api.BIPCoordinator;
+import org.javabip.exceptions.BIPEngineException;
+import org.javabip.executor.ExecutorKernel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes the clusters of components that the glue does not connect with independent engines. When the glue is
+ * specified, the component types are split into clusters (see GlueClusters) and one engine, with its own BDD manager
+ * and its own thread, is created for each cluster with the glue of the cluster. Components are registered to the
+ * engine of the cluster of their type, and their informs are forwarded to it. The components whose type is not
+ * mentioned in the glue are registered to an additional engine with an empty glue. The clusters none of whose component
+ * types has registered instances are not started.
+ */
+public class PartitionedCoordinator implements BIPEngine {
+
+	/**
+	 * Creates the engine of a cluster.
+	 */
+	public interface ClusterEngineFactory {
+
+		/**
+		 * @param glue
+		 *            the glue of the cluster.
+		 * @return a new engine, to which the glue of the cluster has not been specified yet.
+		 */
+		BIPEngine create(BIPGlue glue);
+
+	}
+
+	private Logger logger = LoggerFactory.getLogger(PartitionedCoordinator.class);
+
+	private ClusterEngineFactory clusterEngineFactory;
+
+	private List<BIPEngine> clusterEngines = new ArrayList<BIPEngine>();
+
+	/** The engines of the clusters that have been started, to which the calls of the engine are forwarded. */
+	private List<BIPEngine> startedEngines = new ArrayList<BIPEngine>();
+
+	/** The component types of the glue of each cluster. */
+	private Map<BIPEngine, Set<String>> engineTypes = new Hashtable<BIPEngine, Set<String>>();
+
+	/** The component types that have registered instances. */
+	private Set<String> registeredTypes = new HashSet<String>();
+
+	/** The engine of the cluster of each component type mentioned in the glue. */
+	private Map<String, BIPEngine> typeEngines = new Hashtable<String, BIPEngine>();
+
+	/** The engine of each registered component, keyed by the actor returned at registration. */
+	private Map<Object, BIPEngine> componentEngines = new Hashtable<Object, BIPEngine>();
+
+	/** The engine of the components whose type is not mentioned in the glue, created at the first registration. */
+	private BIPEngine unconnectedEngine;
+
+	private BIPGlue glue;
+
+	private boolean isInitialized = false;
+
+	public PartitionedCoordinator(ClusterEngineFactory clusterEngineFactory) {
+		this.clusterEngineFactory = clusterEngineFactory;
+	}
+
+	public synchronized void specifyGlue(BIPGlue glue) {
+		if (this.glue != null) {
+			logger.error("The glue of the partitioned engine has already been specified.");
+			throw new BIPEngineException("The glue of the partitioned engine has already been specified.");
+		}
+		this.glue = glue;
+		Map<String, BIPGlue> typeGlues = GlueClusters.split(glue);
+		Map<BIPGlue, BIPEngine> glueEngines = new Hashtable<BIPGlue, BIPEngine>();
+		for (String type : typeGlues.keySet()) {
+			BIPGlue clusterGlue = typeGlues.get(type);
+			BIPEngine engine = glueEngines.get(clusterGlue);
+			if (engine == null) {
+				engine = createClusterEngine(clusterGlue);
+				glueEngines.put(clusterGlue, engine);
+			}
+			typeEngines.put(type, engine);
+			Set<String> types = engineTypes.get(engine);
+			if (types == null) {
+				types = new HashSet<String>();
+				engineTypes.put(engine, types);
+			}
+			types.add(type);
+		}
+		logger.info("The glue splits the component types into {} clusters.", clusterEngines.size());
+	}
+
+	/**
+	 * Registers the component to the engine of the cluster of its type. The type is read from the specification of the
+	 * component by an executor that is not used otherwise, since the engine of the cluster creates its own executor.
+	 */
+	public synchronized BIPActor register(Object component, String id, boolean useSpec) {
+		if (glue == null) {
+			logger.error("Component " + id + " registered before the glue of the partitioned engine is specified.");
+			throw new BIPEngineException("Component " + id
+					+ " registered before the glue of the partitioned engine is specified.");
+		}
+		String type = new ExecutorKernel(component, id, useSpec).getType();
+		BIPEngine engine = typeEngines.get(type);
+		if (engine == null) {
+			if (unconnectedEngine == null) {
+				unconnectedEngine = createClusterEngine(GlueClusters.emptyGlue(glue));
+			}
+			engine = unconnectedEngine;
+		}
+		BIPActor actor = engine.register(component, id, useSpec);
+		componentEngines.put(actor, engine);
+		registeredTypes.add(type);
+		return actor;
+	}
+
+	public void inform(BIPComponent component, String currentState, Set<Port> disabledPorts) {
+		engineOf(component).inform(component, currentState, disabledPorts);
+	}
+
+	public void informSpecific(BIPComponent decidingComponent, Port decidingPort,
+			Map<BIPComponent, Set<Port>> disabledCombinations) {
+		engineOf(decidingComponent).informSpecific(decidingComponent, decidingPort, disabledCombinations);
+	}
+
+	/**
+	 * Starts the engines of the clusters that have registered components. A cluster none of whose component types has
+	 * registered instances is skipped, while a cluster with only some of them is rejected before any engine is started.
+	 */
+	public synchronized void start() {
+		List<BIPEngine> enginesToStart = new ArrayList<BIPEngine>();
+		for (BIPEngine engine : clusterEngines) {
+			Set<String> types = engineTypes.get(engine);
+			if (types == null) {
+				/* The engine of the unconnected components, created at their registration */
+				enginesToStart.add(engine);
+				continue;
+			}
+			Set<String> missingTypes = new HashSet<String>(types);
+			missingTypes.removeAll(registeredTypes);
+			if (missingTypes.size() == types.size()) {
+				logger.info("The cluster of the component types {} has no registered instances and is not started.",
+						types);
+			} else if (!missingTypes.isEmpty()) {
+				logger.error("No registered component instances for the component types " + missingTypes
+						+ " of the cluster of the component types " + types + ".");
+				throw new BIPEngineException("No registered component instances for the component types "
+						+ missingTypes + " of the cluster of the component types " + types + ".");
+			} else {
+				enginesToStart.add(engine);
+			}
+		}
+		for (BIPEngine engine : enginesToStart) {
+			engine.start();
+			startedEngines.add(engine);
+		}
+	}
+
+	public synchronized void stop() {
+		for (BIPEngine engine : startedEngines) {
+			engine.stop();
+		}
+	}
+
+	/**
+	 * Stops the engines of the clusters that have been started and waits for them to terminate, see
+	 * BIPCoordinator.shutdown(). The timeout bounds the wait for all the engines together.
+	 * 
+	 * @return the number of execution cycles in which interactions were executed, summed over the engines.
+	 */
+	public long shutdown(boolean drain, long timeout, TimeUnit unit) throws InterruptedException {
+		List<BIPEngine> engines;
+		synchronized (this) {
+			engines = new ArrayList<BIPEngine>(startedEngines);
+		}
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		long nbCycles = 0;
+		for (BIPEngine engine : engines) {
+			if (engine instanceof BIPCoordinator) {
+				long remaining = Math.max(0, deadline - System.nanoTime());
+				nbCycles += ((BIPCoordinator) engine).shutdown(drain, remaining, TimeUnit.NANOSECONDS);
+			} else {
+				engine.stop();
+			}
+		}
+		return nbCycles;
+	}
+
+	public synchronized void execute() {
+		for (BIPEngine engine : startedEngines) {
+			engine.execute();
+		}
+	}
+
+	/**
+	 * Initializes the engines of the clusters. The engines created afterwards are initialized at their creation, which
+	 * also happens within a call to this engine.
+	 */
+	public synchronized void initialize() {
+		isInitialized = true;
+		for (BIPEngine engine : clusterEngines) {
+			engine.initialize();
+		}
+	}
+
+	private BIPEngine createClusterEngine(BIPGlue clusterGlue) {
+		BIPEngine engine = clusterEngineFactory.create(clusterGlue);
+		if (isInitialized) {
+			engine.initialize();
+		}
+		engine.specifyGlue(clusterGlue);
+		clusterEngines.add(engine);
+		return engine;
+	}
+
+	private BIPEngine engineOf(BIPComponent component) {
+		BIPEngine engine = componentEngines.get(component);
+		if (engine == null) {
+			logger.error("Component " + component.getId() + " informs the partitioned engine without being registered.");
+			throw new BIPEngineException("Component " + component.getId()
+					+ " informs the partitioned engine without being registered.");
+		}
+		return engine;
+	}
+
+}
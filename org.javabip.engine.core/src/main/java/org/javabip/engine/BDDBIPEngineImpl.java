@@ -18,10 +18,15 @@
 
 package org.javabip.engine;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Enumeration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -30,11 +35,15 @@ import java.util.Set;
 
 import net.sf.javabdd.BDD;
 import net.sf.javabdd.BDDFactory;
+import net.sf.javabdd.BDDVarSet;
 
 import org.javabip.api.BIPComponent;
 import org.javabip.api.PortBase;
 import org.javabip.engine.api.BDDBIPEngine;
 import org.javabip.engine.api.BIPCoordinator;
+import org.javabip.engine.api.EngineConfiguration;
+import org.javabip.engine.api.MaximalInteractionMode;
+import org.javabip.engine.api.ReorderingStrategy;
 import org.javabip.exceptions.BIPEngineException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,23 +57,97 @@ import org.slf4j.LoggerFactory;
 public class BDDBIPEngineImpl implements BDDBIPEngine {
 
 	private Logger logger = LoggerFactory.getLogger(BDDBIPEngineImpl.class);
-	private Hashtable<BIPComponent, BDD> currentStateBDDs = new Hashtable<BIPComponent, BDD>();
 	private ArrayList<BDD> temporaryConstraints = new ArrayList<BDD>();
 	private Hashtable<BIPComponent, BDD> behaviourBDDs = new Hashtable<BIPComponent, BDD>();
 	private Set<BDD> permanentDataBDDs = new HashSet<BDD>();
 
 	private BDD totalConstraints;
-	// TODO: Put these as arguments
-	private int noNodes = 1500;
-	private int cacheSize = 50000;
 
 	/* Use JavaBDD Bdd Manager */
-	private BDDFactory bdd_mgr = BDDFactory.init("java", noNodes, cacheSize);
+	private BDDFactory bdd_mgr;
+	private ReorderingStrategy reorderingStrategy;
+
+	/** Conjoins the behaviour, glue and data constraints into the total constraints BDD. */
+	private ConjunctionScheduler conjunctionScheduler;
+	private boolean staticVariableOrdering;
+
+	/* Variable orders learned in previous executions, null if they are not stored */
+	private VariableOrderStore variableOrderStore;
+	private String modelFingerprint;
+	/* Whether the variable order has been loaded from the store, in which case the variables are not reordered */
+	private boolean learnedVariableOrder = false;
+
+	/* Directory of the snapshots of the total constraints BDD, null if they are not used */
+	private File constraintsSnapshotDirectory;
+	private boolean restoredTotalConstraints = false;
+	/* Conjunction of the current state BDDs, maintained incrementally */
+	private ConjunctionTree<BIPComponent> currentStateTree;
+	/* Conjunction of the current state BDDs of the components that are not busy, the busy ones being unconstrained */
+	private ConjunctionTree<BIPComponent> informedStateTree;
+	/* Components that have not informed, whose ports are all disabled, and the corresponding BDDs */
+	private Set<BIPComponent> busyComponents = new HashSet<BIPComponent>();
+	private Hashtable<BIPComponent, BDD> busyBDDs = new Hashtable<BIPComponent, BDD>();
 	Map<Integer, Entry<PortBase, PortBase>> dVariablesToPosition = new Hashtable<Integer, Entry<PortBase, PortBase>>();
 	List<Integer> positionsOfDVariables = new ArrayList<Integer>();
 
 	private BIPCoordinator wrapper;
 
+	private MaximalInteractionMode maximalInteractionMode;
+
+	/* Whether several maximal interactions over disjoint components are executed in each cycle */
+	private boolean maximalParallelStep;
+
+	/* For each port variable, the index of its component, and for each component, its port variables */
+	private int[] portOwners;
+	private List<List<Integer>> componentPorts;
+
+	/** Estimated number of nodes needed per BDD variable by the behaviour constraints. */
+	private static final int NODES_PER_VARIABLE = 64;
+
+	/** Estimated number of nodes needed per glue constraint instance. */
+	private static final int NODES_PER_GLUE_CONSTRAINT = 256;
+
+	public BDDBIPEngineImpl() {
+		this(new EngineConfiguration());
+	}
+
+	/**
+	 * @param configuration
+	 *            the parameters of the BDD manager and of the computation of the maximal interactions.
+	 */
+	public BDDBIPEngineImpl(EngineConfiguration configuration) {
+		bdd_mgr = BDDFactory.init(configuration.getBddBackend(), configuration.getNodeTableSize(),
+				configuration.getCacheSize());
+		if (configuration.getCacheRatio() != null) {
+			bdd_mgr.setCacheRatio(configuration.getCacheRatio());
+		}
+		if (configuration.getMinFreeNodes() != null) {
+			bdd_mgr.setMinFreeNodes(configuration.getMinFreeNodes());
+		}
+		if (configuration.getMaxIncrease() != null) {
+			bdd_mgr.setMaxIncrease(configuration.getMaxIncrease());
+		}
+		if (configuration.getIncreaseFactor() != null) {
+			bdd_mgr.setIncreaseFactor(configuration.getIncreaseFactor());
+		}
+		reorderingStrategy = configuration.getReorderingStrategy();
+		conjunctionScheduler = new ConjunctionScheduler(bdd_mgr, configuration.getConjunctionStrategy());
+		if (reorderingStrategy == ReorderingStrategy.AUTO) {
+			bdd_mgr.autoReorder(BDDFactory.REORDER_SIFT);
+		}
+		staticVariableOrdering = configuration.isStaticVariableOrdering();
+		if (configuration.getConstraintsSnapshotDirectory() != null) {
+			constraintsSnapshotDirectory = new File(configuration.getConstraintsSnapshotDirectory());
+		}
+		if (configuration.getVariableOrderDirectory() != null) {
+			variableOrderStore = new VariableOrderStore(new File(configuration.getVariableOrderDirectory()));
+		}
+		maximalInteractionMode = configuration.getMaximalInteractionMode();
+		maximalParallelStep = configuration.isMaximalParallelStep();
+		currentStateTree = new ConjunctionTree<BIPComponent>(bdd_mgr);
+		informedStateTree = new ConjunctionTree<BIPComponent>(bdd_mgr);
+	}
+
 	/**
 	 * Counts the number of enabled ports in the Maximal cube chosen
 	 */
@@ -149,43 +232,151 @@ public class BDDBIPEngineImpl implements BDDBIPEngine {
 		return maxMaximals;
 	}
 
+	/**
+	 * Adds a cube to the maximal cubes found so far, unless one of them contains it. The cube replaces all the cubes it
+	 * contains, not only the first one, so that the maximal cubes stay pairwise incomparable.
+	 */
 	private void findMaximals(ArrayList<byte[]> cubeMaximals, byte[] c_cube, List<Integer> portBDDsPosition) {
-		int size = cubeMaximals.size();
-		logger.trace("findMaximals size: " + size);
+		logger.trace("findMaximals size: " + cubeMaximals.size());
 
-		for (int i = 0; i < size; i++) {
-			int comparison = compareCube(c_cube, cubeMaximals.get(i), portBDDsPosition);
-			if (comparison == 1 || comparison == 0) {
-				cubeMaximals.remove(i);
-				cubeMaximals.add(i, c_cube);
-				// addCube(cubeMaximals, c_cube, i);
+		for (byte[] cubeMaximal : cubeMaximals) {
+			if (compareCube(c_cube, cubeMaximal, portBDDsPosition) == 3)
 				return;
+		}
+		Iterator<byte[]> iterator = cubeMaximals.iterator();
+		while (iterator.hasNext()) {
+			int comparison = compareCube(c_cube, iterator.next(), portBDDsPosition);
+			if (comparison == 1 || comparison == 0) {
+				iterator.remove();
 			}
-			if (comparison == 3)
-				return;
 		}
-		cubeMaximals.add(cubeMaximals.size(), c_cube);
-		// addCube(cubeMaximals, c_cube, cubeMaximals.size());
+		cubeMaximals.add(c_cube);
+	}
+
+	/**
+	 * @return the satisfying cubes of a BDD. JavaBDD returns them as a raw List whose elements are always byte arrays,
+	 *         hence the unchecked conversion is safe.
+	 */
+	@SuppressWarnings("unchecked")
+	private static List<byte[]> allCubes(BDD bdd) {
+		return (List<byte[]>) bdd.allsat();
+	}
+
+	/**
+	 * Enumerates all the satisfying cubes of the global BDD and keeps the maximal ones by pairwise comparison. It is
+	 * package-private so that the tests can compare it with the symbolic computation of the maximal interactions.
+	 */
+	ArrayList<byte[]> enumerateMaximalCubes(BDD solns, List<Integer> positionOfPorts) {
+		ArrayList<byte[]> possibleInteraction = new ArrayList<byte[]>();
+
+		possibleInteraction.addAll(allCubes(solns));
+
+		logger.debug("******************************* Engine **********************************");
+		logger.debug("Number of possible interactions is: {} " + possibleInteraction.size());
+
+		ArrayList<byte[]> cubeMaximals = new ArrayList<byte[]>();
+		for (int i = 0; i < possibleInteraction.size(); i++) {
+			logger.trace("Positions of D Variables size:" + positionsOfDVariables.size());
+			findMaximals(cubeMaximals, possibleInteraction.get(i), positionOfPorts);
+		}
+		return cubeMaximals;
+	}
+
+	/**
+	 * Adds to the chosen interactions, in order, the interactions that do not involve any component of the interactions
+	 * added before.
+	 */
+	private void selectDisjointInteractions(List<byte[]> interactions, List<byte[]> chosenInteractions) {
+		computePortOwners();
+		boolean[] participants = new boolean[componentPorts.size()];
+		for (byte[] interaction : interactions) {
+			boolean disjoint = true;
+			boolean empty = true;
+			for (int position = 0; position < portOwners.length && disjoint; position++) {
+				if (portOwners[position] >= 0 && interaction[position] != 0) {
+					disjoint = !participants[portOwners[position]];
+					empty = false;
+				}
+			}
+			if (disjoint && !empty) {
+				chosenInteractions.add(interaction);
+				markParticipants(interaction, participants);
+			}
+		}
+	}
+
+	/**
+	 * Draws interactions one after the other among the given maximal interactions, restricted at each step to the ones
+	 * that do not involve any component of the chosen interactions, until there is none left.
+	 */
+	private void pickDisjointInteractions(List<byte[]> chosenInteractions, BDD maximalInteractions,
+			MaximalInteractionExtractor extractor, Random rand) {
+		computePortOwners();
+		boolean[] participants = new boolean[componentPorts.size()];
+		BDD remainingInteractions = maximalInteractions.id();
+		for (byte[] interaction : chosenInteractions) {
+			remainingInteractions.andWith(disableParticipants(interaction, participants));
+		}
+		while (!remainingInteractions.isZero()) {
+			byte[] interaction = extractor.pickOne(remainingInteractions, rand);
+			BDD disabledParticipants = disableParticipants(interaction, participants);
+			if (disabledParticipants.isOne()) {
+				/* Only the empty interaction is left */
+				disabledParticipants.free();
+				break;
+			}
+			chosenInteractions.add(interaction);
+			remainingInteractions.andWith(disabledParticipants);
+		}
+		remainingInteractions.free();
 	}
 
-	public final BDD totalCurrentStateBdd(Hashtable<BIPComponent, BDD> currentStateBDDs) throws BIPEngineException {
-		BDD totalCurrentStateBdd = bdd_mgr.one();
-		BDD tmp;
+	/**
+	 * Marks the components of an interaction as participants.
+	 */
+	private void markParticipants(byte[] interaction, boolean[] participants) {
+		for (int position = 0; position < portOwners.length; position++) {
+			if (portOwners[position] >= 0 && interaction[position] != 0) {
+				participants[portOwners[position]] = true;
+			}
+		}
+	}
 
-		logger.trace("Conjunction of current states about to start..");
-		for (Enumeration<BIPComponent> componentsEnum = currentStateBDDs.keys(); componentsEnum.hasMoreElements();) {
-			BIPComponent component = componentsEnum.nextElement();
-			if (currentStateBDDs.get(component) == null) {
-				logger.error("Current state BDD is null of component {}", component);
-				throw new BIPEngineException("Current state BDD is null of component " + component);
+	/**
+	 * Marks the components of an interaction as participants and returns the BDD where all their ports are disabled.
+	 */
+	private BDD disableParticipants(byte[] interaction, boolean[] participants) {
+		BDD disabledPorts = bdd_mgr.one();
+		for (int position = 0; position < portOwners.length; position++) {
+			int owner = portOwners[position];
+			if (owner >= 0 && interaction[position] != 0 && !participants[owner]) {
+				participants[owner] = true;
+				for (int port : componentPorts.get(owner)) {
+					disabledPorts.andWith(bdd_mgr.nithVar(port));
+				}
 			}
+		}
+		return disabledPorts;
+	}
 
-			tmp = totalCurrentStateBdd.and(currentStateBDDs.get(component));
-			totalCurrentStateBdd.free();
-			totalCurrentStateBdd = tmp;
+	/**
+	 * Computes the components of the port variables, once all the components have registered.
+	 */
+	private void computePortOwners() {
+		if (portOwners != null) {
+			return;
+		}
+		portOwners = new int[bdd_mgr.varNum()];
+		Arrays.fill(portOwners, -1);
+		componentPorts = new ArrayList<List<Integer>>();
+		for (BDD[] portBDDs : wrapper.getBehaviourEncoderInstance().getPortBDDs().values()) {
+			List<Integer> ports = new ArrayList<Integer>();
+			for (BDD portBDD : portBDDs) {
+				portOwners[portBDD.var()] = componentPorts.size();
+				ports.add(portBDD.var());
+			}
+			componentPorts.add(ports);
 		}
-		logger.trace("Conjunction of current states has finished");
-		return totalCurrentStateBdd;
 	}
 
 	public final BDD totalExtraBdd(ArrayList<BDD> disabledCombinationBDDs) throws BIPEngineException {
@@ -207,11 +398,8 @@ public class BDDBIPEngineImpl implements BDDBIPEngine {
 
 		byte[] chosenInteraction;
 
-		// For performance info
-		// long time = System.currentTimeMillis();
-
-		BDD totalCurrentStateAndDisabledCombinations = totalCurrentStateBdd(currentStateBDDs);
-		BDD solns = totalConstraints.and(totalCurrentStateAndDisabledCombinations);
+		/* Only the paths of the components that have informed since the last cycle are recomputed */
+		BDD solns = solutions(currentStateTree.root());
 
 		logger.trace("INFORM SPECIFIC CALL: Disabled Combinations size " + temporaryConstraints.size());
 
@@ -222,79 +410,32 @@ public class BDDBIPEngineImpl implements BDDBIPEngine {
 			solns.andWith(totalExtraBdd(temporaryConstraints));
 		}
 
-		/* Compute global BDD: solns= Λi Fi Λ G Λ (Λi Ci) */
-		totalCurrentStateAndDisabledCombinations.free();
-		// For performance and memory info
-		// System.out.println("Number of nodes " + this.bdd_mgr.getNodeTableSize());
-		// System.out.println("Number of all nodes: " + this.bdd_mgr.getNodeNum());
-		// System.out.println("Max memory: " + Runtime.getRuntime().maxMemory());
-		// System.out.println("Total memory: " + Runtime.getRuntime().totalMemory());
-		// System.out.println("free Memory: " + Runtime.getRuntime().freeMemory());
-
-		// System.gc();
-		// System.gc();
-		// System.gc();
-		// System.gc();
-		// System.gc();
-		// System.gc();
-		// System.gc();
-
-		// long mem0 = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
-		// System.out.println("Cache size " + this.bdd_mgr.getCacheSize());
-		//
-		// System.out.println("solns nodes: " + solns.nodeCount());
-
-		// System.out.println(bdd_mgr.getClass().toString());
-		// solns.free();
-		// bdd_mgr.done();
-		// THIS IS WHAT I NEED FOR EVALUATION OF NODES
-		// System.out.println("Number of nodes " + this.bdd_mgr.getNodeTableSize());
-		// System.out.println("Number of all nodes: " + this.bdd_mgr.getNodeNum());
-		// System.out.println("Cache size " + this.bdd_mgr.getCacheSize());
-		// System.out.println("Number of nodes " + this.bdd_mgr.getNodeTableSize());
-		// System.out.println("Number of all nodes: " + this.bdd_mgr.getNodeNum());
-		// bdd_mgr = null;
-
-		// System.gc();
-		// System.gc();
-		// System.gc();
-		// System.gc();
-		// System.gc();
-		// System.gc();
-		// System.gc();
-		// System.out.println("Max memory: " + Runtime.getRuntime().maxMemory());
-		// System.out.println("Total memory: " + Runtime.getRuntime().totalMemory());
-		// System.out.println("free Memory: " + Runtime.getRuntime().freeMemory());
-
-		// System.out.println("Total mem: "
-		// + (mem0 - (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory())));
-
-		ArrayList<byte[]> possibleInteraction = new ArrayList<byte[]>();
-
-		possibleInteraction.addAll(solns.allsat());
-		// BigInteger[] oneSolution = solns.scanAllVar();
-
-		logger.debug("******************************* Engine **********************************");
-		logger.debug("Number of possible interactions is: {} " + possibleInteraction.size());
-		// Iterator<byte[]> it = possibleInteraction.iterator();
-
-		/* for debugging */
-		// while (it.hasNext()) {
-		// byte[] value = it.next();
-		//
-		// StringBuilder sb = new StringBuilder();
-		// for (byte b : value) {
-		// sb.append(String.format("%02X ", b));
-		// }
-		// logger.trace(sb.toString());
-		// System.out.println("Engine: " + sb.toString());
-		// }
-
-		ArrayList<byte[]> cubeMaximals = new ArrayList<byte[]>();
 		List<Integer> positionOfPorts = wrapper.getBehaviourEncoderInstance().getPositionsOfPorts();
-		for (int i = 0; i < possibleInteraction.size(); i++) {
-			logger.trace("Positions of D Variables size:" + positionsOfDVariables.size());
-			findMaximals(cubeMaximals, possibleInteraction.get(i), positionOfPorts);
+		Random rand = new Random();
+		ArrayList<byte[]> cubeMaximals;
+		MaximalInteractionExtractor extractor = null;
+		if (maximalInteractionMode == MaximalInteractionMode.ENUMERATE_CUBES) {
+			cubeMaximals = enumerateMaximalCubes(solns, positionOfPorts);
+		} else {
+			extractor = new MaximalInteractionExtractor(bdd_mgr, positionOfPorts);
+			BDD maximalInteractions = extractor.maximalInteractions(solns);
+			cubeMaximals = new ArrayList<byte[]>();
+			if (maximalInteractionMode == MaximalInteractionMode.PICK_ONE) {
+				/*
+				 * Only the drawn interactions are kept. If the empty interaction is maximal, it is the only maximal
+				 * interaction, hence the deadlock detection below still applies.
+				 */
+				if (!maximalInteractions.isZero()) {
+					cubeMaximals.add(extractor.pickOne(maximalInteractions, rand));
+					if (maximalParallelStep) {
+						pickDisjointInteractions(cubeMaximals, maximalInteractions, extractor, rand);
+					}
+				}
+			} else {
+				cubeMaximals.addAll(allCubes(maximalInteractions));
+			}
+			maximalInteractions.free();
+			extractor.free();
 		}
 
 		/* deadlock detection */
@@ -303,49 +444,152 @@ public class BDDBIPEngineImpl implements BDDBIPEngine {
 			logger.error("Deadlock. No maximal interactions.");
 			throw new BIPEngineException("Deadlock. No maximal interactions.");
 		} else if (size == 1) {
-			if (countPortEnable(cubeMaximals.get(0), (ArrayList<Integer>) wrapper.getBehaviourEncoderInstance()
-					.getPositionsOfPorts()) == 0) {
+			if (countPortEnable(cubeMaximals.get(0), (ArrayList<Integer>) positionOfPorts) == 0) {
 				logger.error("Deadlock. No enabled ports.");
 				throw new BIPEngineException("Deadlock. No enabled ports.");
 			}
 		}
 
 		logger.debug("Number of maximal interactions: " + cubeMaximals.size());
-		Random rand = new Random();
+		List<byte[]> chosenInteractions = new ArrayList<byte[]>();
+		if (maximalParallelStep && maximalInteractionMode == MaximalInteractionMode.PICK_ONE) {
+			/* The interactions have already been drawn over disjoint components */
+			chosenInteractions.addAll(cubeMaximals);
+		} else if (maximalParallelStep) {
+			/*
+			 * Keep maximal interactions over disjoint components, in a random order
+			 */
+			Collections.shuffle(cubeMaximals, rand);
+			selectDisjointInteractions(cubeMaximals, chosenInteractions);
+		} else {
+			/*
+			 * Pick a random maximal interaction
+			 */
+			int randomInt = rand.nextInt(cubeMaximals.size());
+			chosenInteractions.add(cubeMaximals.get(randomInt));
+		}
+		cubeMaximals.clear();
+		if (extractor != null) {
+			/* The maximal interactions only assign the ports, the valuation of the d-variables is taken from solns */
+			for (int i = 0; i < chosenInteractions.size(); i++) {
+				chosenInteractions.set(i, extractor.valuation(solns, chosenInteractions.get(i)));
+			}
+		}
 		/*
-		 * Pick a random maximal interaction
+		 * Update chosen interaction
 		 */
-		int randomInt = rand.nextInt(cubeMaximals.size());
+		chosenInteraction = chosenInteractions.get(0);
+
 		/*
-		 * Update chosen interaction
+		 * The BDDs of the cycle are freed before the interaction is executed, so that the next cycle can start as soon
+		 * as the components inform.
 		 */
-		chosenInteraction = cubeMaximals.get(randomInt);
-		cubeMaximals.clear();
+		solns.free();
+		temporaryConstraints.clear();
 
 		/*
 		 * Beginning of the part to move to the Data Coordinator
 		 */
-		// For performance info
-
-		wrapper.execute(chosenInteraction);
-		// System.out.println((System.currentTimeMillis() - time));
-
+		if (chosenInteractions.size() == 1) {
+			wrapper.execute(chosenInteraction);
+		} else {
+			logger.debug("Number of interactions executed in parallel: " + chosenInteractions.size());
+			wrapper.execute(chosenInteractions);
+		}
 		/*
 		 * End of the part to move to the Data Coordinator
 		 */
+	}
+
+	/**
+	 * Computes possible maximal interactions while some components are busy. An interaction is chosen only if it is
+	 * maximal both when the ports of the busy components are disabled and when the busy components are unconstrained,
+	 * so that it is maximal whatever the busy components inform. The interactions are drawn as in the SYMBOLIC mode,
+	 * unless the mode is PICK_ONE.
+	 */
+	public synchronized final boolean tryRunOneIteration() throws BIPEngineException {
+		if (busyComponents.isEmpty()) {
+			runOneIteration();
+			return true;
+		}
+
+		BDD solns = solutions(currentStateTree.root());
+		BDD informedSolns = solutions(informedStateTree.root());
+		/* The temporary constraints are kept for the next attempt, hence they are not consumed here */
+		for (BDD temporaryConstraint : temporaryConstraints) {
+			solns.andWith(temporaryConstraint.id());
+			informedSolns.andWith(temporaryConstraint.id());
+		}
+
+		List<Integer> positionOfPorts = wrapper.getBehaviourEncoderInstance().getPositionsOfPorts();
+		MaximalInteractionExtractor extractor = new MaximalInteractionExtractor(bdd_mgr, positionOfPorts);
+		BDD decidableInteractions = extractor.maximalInteractions(informedSolns);
+		decidableInteractions.andWith(extractor.maximalInteractions(solns));
+		informedSolns.free();
+
+		List<byte[]> chosenInteractions = new ArrayList<byte[]>();
+		if (!decidableInteractions.isZero()) {
+			Random rand = new Random();
+			byte[] interaction;
+			if (maximalInteractionMode == MaximalInteractionMode.PICK_ONE) {
+				interaction = extractor.pickOne(decidableInteractions, rand);
+			} else {
+				List<byte[]> interactions = allCubes(decidableInteractions);
+				interaction = interactions.get(rand.nextInt(interactions.size()));
+			}
+			/* The empty interaction is not executed, the busy components may enable some ports */
+			if (countPortEnable(interaction, (ArrayList<Integer>) positionOfPorts) != 0) {
+				chosenInteractions.add(interaction);
+				if (maximalParallelStep) {
+					pickDisjointInteractions(chosenInteractions, decidableInteractions, extractor, rand);
+				}
+			}
+			for (int i = 0; i < chosenInteractions.size(); i++) {
+				chosenInteractions.set(i, extractor.valuation(solns, chosenInteractions.get(i)));
+			}
+		}
+		decidableInteractions.free();
+		extractor.free();
+
+		if (chosenInteractions.isEmpty()) {
+			logger.trace("No interaction independent of the {} busy components.", busyComponents.size());
+			solns.free();
+			return false;
+		}
 		solns.free();
+		for (BDD temporaryConstraint : temporaryConstraints) {
+			temporaryConstraint.free();
+		}
 		temporaryConstraints.clear();
-		// For performance info
-		// bdd_mgr.done();
-		// System.out.println("Number of nodes " + this.bdd_mgr.getNodeTableSize());
-		// bdd_mgr = null;
-		// time = System.currentTimeMillis() - time;
-		// System.out.println("Engine cycle time: "+ time);
-
+		if (chosenInteractions.size() == 1) {
+			wrapper.execute(chosenInteractions.get(0));
+		} else {
+			wrapper.execute(chosenInteractions);
+		}
+		return true;
 	}
 
 	public synchronized void informCurrentState(BIPComponent component, BDD componentBDD) {
-		currentStateBDDs.put(component, componentBDD);
+		currentStateTree.update(component, componentBDD);
+		informedStateTree.update(component, componentBDD);
+		busyComponents.remove(component);
+	}
+
+	public synchronized void informBusy(BIPComponent component) {
+		if (!busyComponents.add(component)) {
+			return;
+		}
+		BDD busyBDD = busyBDDs.get(component);
+		if (busyBDD == null) {
+			busyBDD = bdd_mgr.one();
+			for (BDD portBDD : wrapper.getBehaviourEncoderInstance().getPortBDDs().get(component)) {
+				busyBDD.andWith(portBDD.not());
+			}
+			busyBDDs.put(component, busyBDD);
+		}
+		currentStateTree.update(component, busyBDD);
+		/* A null leaf stands for the constant one */
+		informedStateTree.update(component, null);
 	}
 
 	public synchronized void specifyTemporaryExtraConstraints(final BDD extraConstraint) {
@@ -355,21 +599,15 @@ public class BDDBIPEngineImpl implements BDDBIPEngine {
 
 	private synchronized void dataConstraintsComputation(Set<BDD> extraConstraints) {
 		synchronized (this) {
-			if (totalConstraints == null) {
-				totalConstraints = bdd_mgr.one();
-				for (BDD eachD : extraConstraints) {
-					totalConstraints.andWith(eachD);
-				}
+			if (!hasConstraints()) {
+				addConstraints(extraConstraints, "data constraints");
 				logger.trace("Extra permanent constraints added to empty total BDD.");
-				bdd_mgr.reorder(BDDFactory.REORDER_SIFTITE);
+				reorder();
 				// System.out.println("EData: Reorder stats: " + bdd_mgr.getReorderStats());
 			} else {
-
-				for (BDD eachD : extraConstraints) {
-					totalConstraints.andWith(eachD);
-				}
+				addConstraints(extraConstraints, "data constraints");
 				logger.trace("Extra permanent constraints added to existing total BDD.");
-				bdd_mgr.reorder(BDDFactory.REORDER_SIFTITE);
+				reorder();
 				// System.out.println("EData: Reorder stats: " + bdd_mgr.getReorderStats());
 			}
 		}
@@ -383,6 +621,83 @@ public class BDDBIPEngineImpl implements BDDBIPEngine {
 		behaviourBDDs.put(component, componentBDD);
 	}
 
+	public synchronized void informModelSize(int nbComponents, int nbStates, int nbPorts, int nbGlueConstraints) {
+		/* The d-variables, if any, have already been created */
+		int nbVariables = Math.max(bdd_mgr.varNum(), nbStates + nbPorts);
+		int estimatedNodes = NODES_PER_VARIABLE * nbVariables + NODES_PER_GLUE_CONSTRAINT * nbGlueConstraints;
+		logger.debug("Model size: " + nbComponents + " components, " + nbVariables + " variables, "
+				+ nbGlueConstraints + " glue constraints. Estimated number of nodes: " + estimatedNodes);
+
+		/* The node table and the cache only grow, the configured sizes are a lower bound */
+		if (estimatedNodes > bdd_mgr.getNodeTableSize()) {
+			bdd_mgr.setNodeTableSize(estimatedNodes);
+		}
+		if (estimatedNodes > bdd_mgr.getCacheSize()) {
+			bdd_mgr.setCacheSize(estimatedNodes);
+		}
+	}
+
+	public synchronized void informVariableOrdering(int[] variableOrder) {
+		if (!staticVariableOrdering || learnedVariableOrder) {
+			return;
+		}
+		int nbVariables = bdd_mgr.varNum();
+		int[] positionInOrder = new int[nbVariables];
+		Arrays.fill(positionInOrder, -1);
+		for (int position = 0; position < variableOrder.length; position++) {
+			int variable = variableOrder[position];
+			if (variable < 0 || variable >= nbVariables || positionInOrder[variable] != -1) {
+				logger.warn("Invalid static variable order, variable " + variable + " is unknown or repeated.");
+				return;
+			}
+			positionInOrder[variable] = position;
+		}
+
+		/*
+		 * Each missing variable (d-variable) is placed right after the last ordered variable of the permanent
+		 * constraints it appears in, i.e. after the ports of its data wire.
+		 */
+		int[] anchor = new int[nbVariables];
+		Arrays.fill(anchor, -1);
+		for (BDD permanentDataBDD : permanentDataBDDs) {
+			BDDVarSet supportSet = permanentDataBDD.support();
+			int[] support = supportSet.toArray();
+			supportSet.free();
+			int lastPosition = -1;
+			for (int variable : support) {
+				lastPosition = Math.max(lastPosition, positionInOrder[variable]);
+			}
+			for (int variable : support) {
+				if (positionInOrder[variable] == -1) {
+					anchor[variable] = Math.max(anchor[variable], lastPosition);
+				}
+			}
+		}
+		List<List<Integer>> placedAfter = new ArrayList<List<Integer>>();
+		for (int position = 0; position <= variableOrder.length; position++) {
+			placedAfter.add(new ArrayList<Integer>());
+		}
+		for (int variable = 0; variable < nbVariables; variable++) {
+			if (positionInOrder[variable] == -1) {
+				/* Variables that do not appear in any constraint go to the bottom */
+				placedAfter.get(anchor[variable] == -1 ? variableOrder.length : anchor[variable]).add(variable);
+			}
+		}
+
+		int[] order = new int[nbVariables];
+		int level = 0;
+		for (int position = 0; position <= variableOrder.length; position++) {
+			if (position < variableOrder.length) {
+				order[level++] = variableOrder[position];
+			}
+			for (int variable : placedAfter.get(position)) {
+				order[level++] = variable;
+			}
+		}
+		bdd_mgr.setVarOrder(order);
+		logger.debug("Static variable order set for " + nbVariables + " variables.");
+	}
+
 	public synchronized final void totalBehaviourBDD() {
 		logger.trace("Conjunction of behaviours has finished");
 		/*
@@ -391,25 +706,17 @@ public class BDDBIPEngineImpl implements BDDBIPEngine {
 		 */
 
 		synchronized (this) {
-			if (totalConstraints == null) {
-				totalConstraints = bdd_mgr.one();
-				for (Enumeration<BIPComponent> componentsEnum = behaviourBDDs.keys(); componentsEnum.hasMoreElements();) {
-
-					logger.trace("Conjunction of behaviours about to start..");
-					totalConstraints.andWith(behaviourBDDs.get(componentsEnum.nextElement()));
-
-				}
-				bdd_mgr.reorder(BDDFactory.REORDER_SIFTITE);
+			if (!hasConstraints()) {
+				logger.trace("Conjunction of behaviours about to start..");
+				addConstraints(behaviourBDDs.values(), "behaviours");
+				reorder();
 				// System.out.println("E5: Reorder stats: " + bdd_mgr.getReorderStats());
 				logger.trace("E5: Reorder stats: " + bdd_mgr.getReorderStats());
 				logger.trace("Behaviour constraints added to empty total BDD.");
 			} else {
-				for (Enumeration<BIPComponent> componentsEnum = behaviourBDDs.keys(); componentsEnum.hasMoreElements();) {
-
-					logger.trace("Conjunction of behaviours about to start..");
-					totalConstraints.andWith(behaviourBDDs.get(componentsEnum.nextElement()));
-				}
-				bdd_mgr.reorder(BDDFactory.REORDER_SIFTITE);
+				logger.trace("Conjunction of behaviours about to start..");
+				addConstraints(behaviourBDDs.values(), "behaviours");
+				reorder();
 				// System.out.println("E7: Reorder stats: " + bdd_mgr.getReorderStats());
 				logger.trace("E7: Reorder stats: " + bdd_mgr.getReorderStats());
 				logger.trace("Behaviour constraints added to existing total BDD.");
@@ -420,17 +727,9 @@ public class BDDBIPEngineImpl implements BDDBIPEngine {
 
 	public synchronized void informGlue(List<BDD> totalGlue) {
 		synchronized (this) {
-			if (totalConstraints == null) {
-
-				totalConstraints = bdd_mgr.one();
-				for (BDD glueBDD : totalGlue) {
-					/*
-					 * Re-ordering function and statistics printouts
-					 */
-					logger.trace("And with effect Instance");
-					totalConstraints.andWith(glueBDD);
-					logger.trace("Finish andwith effect Instance");
-				}
+			if (!hasConstraints()) {
+
+				addConstraints(totalGlue, "glue constraints");
 				logger.trace("Glue constraints added to empty total BDD.");
 
 				if (this.permanentDataBDDs.size() != 0) {
@@ -438,20 +737,228 @@ public class BDDBIPEngineImpl implements BDDBIPEngine {
 				}
 			} else {
 
-				for (BDD glueBDD : totalGlue) {
-					logger.trace("And with effect Instance");
-					totalConstraints.andWith(glueBDD);
-					logger.trace("Finish andwith effect Instance");
-
-				}
+				addConstraints(totalGlue, "glue constraints");
 				logger.trace("E9: Reorder stats: " + bdd_mgr.getReorderStats());
 				// System.out.println("E9: Reorder stats: " + bdd_mgr.getReorderStats());
-				bdd_mgr.reorder(BDDFactory.REORDER_SIFTITE);
+				reorder();
 				logger.info("Glue constraints added to existing total BDD.");
 				if (this.permanentDataBDDs.size() != 0) {
 					dataConstraintsComputation(this.permanentDataBDDs);
 				}
 			}
+			logger.info("At most {} live BDD nodes after each step of the conjunction of the constraints.",
+					conjunctionScheduler.getMaxLiveNodesAfterStep());
+			storeVariableOrder();
+			saveTotalConstraints();
+		}
+	}
+
+	/**
+	 * Adds behaviour, glue or data constraints to the total constraints BDD.
+	 * 
+	 * @param constraints
+	 *            the constraint BDDs, which are freed.
+	 * @param description
+	 *            the description of the constraints, for the reports.
+	 */
+	protected void addConstraints(Collection<BDD> constraints, String description) {
+		BDD conjunction = conjunctionScheduler.conjoin(constraints, description);
+		if (totalConstraints == null) {
+			totalConstraints = conjunction;
+		} else {
+			totalConstraints.andWith(conjunction);
+		}
+	}
+
+	/**
+	 * @return whether constraints have already been added to the total constraints BDD.
+	 */
+	protected boolean hasConstraints() {
+		return totalConstraints != null;
+	}
+
+	/**
+	 * Computes the solutions of the total constraints in a current state.
+	 * 
+	 * @param currentState
+	 *            the conjunction of the current state BDDs, which is not freed.
+	 * @return the BDD of the solutions, whose port and d-variables give the possible interactions.
+	 */
+	protected BDD solutions(BDD currentState) {
+		return totalConstraints.and(currentState);
+	}
+
+	public synchronized boolean restoreTotalConstraints() {
+		if (constraintsSnapshotDirectory == null || modelFingerprint == null || totalConstraints != null) {
+			return false;
+		}
+		File file = new File(constraintsSnapshotDirectory, modelFingerprint + ".bdd");
+		if (!file.isFile()) {
+			return false;
+		}
+		try {
+			totalConstraints = ConstraintsSnapshot.load(file, modelFingerprint, bdd_mgr, statePositions(),
+					portPositions(), dVariablePositions());
+		} catch (IOException e) {
+			logger.warn("Snapshot file " + file + " cannot be read: " + e.getMessage());
+		} catch (RuntimeException e) {
+			/* A snapshot that the checks of the format let through is handled as a stale one */
+			logger.warn("Snapshot file " + file + " cannot be restored: " + e);
+		}
+		if (totalConstraints == null) {
+			return false;
+		}
+		restoredTotalConstraints = true;
+		learnedVariableOrder = true;
+		logger.info("Total constraints BDD of model " + modelFingerprint + " restored from " + file);
+		return true;
+	}
+
+	/**
+	 * Saves a snapshot of the total constraints BDD for the model, unless it has been restored from one.
+	 */
+	private void saveTotalConstraints() {
+		if (constraintsSnapshotDirectory == null || modelFingerprint == null || restoredTotalConstraints
+				|| totalConstraints == null) {
+			return;
+		}
+		if (!constraintsSnapshotDirectory.isDirectory() && !constraintsSnapshotDirectory.mkdirs()) {
+			logger.warn("Directory " + constraintsSnapshotDirectory + " for the snapshots cannot be created.");
+			return;
+		}
+		File file = new File(constraintsSnapshotDirectory, modelFingerprint + ".bdd");
+		try {
+			ConstraintsSnapshot.save(file, modelFingerprint, bdd_mgr, totalConstraints, statePositions(),
+					portPositions(), dVariablePositions());
+			logger.debug("Total constraints BDD of model " + modelFingerprint + " saved to " + file);
+		} catch (IOException e) {
+			logger.warn("Snapshot file " + file + " cannot be written: " + e.getMessage());
+		}
+	}
+
+	protected int[] statePositions() {
+		List<Integer> positions = new ArrayList<Integer>();
+		for (BDD[] componentStates : wrapper.getBehaviourEncoderInstance().getStateBDDs().values()) {
+			for (BDD state : componentStates) {
+				positions.add(state.var());
+			}
+		}
+		Collections.sort(positions);
+		return toArray(positions);
+	}
+
+	private int[] portPositions() {
+		List<Integer> positions = new ArrayList<Integer>(wrapper.getBehaviourEncoderInstance().getPositionsOfPorts());
+		Collections.sort(positions);
+		return toArray(positions);
+	}
+
+	/**
+	 * @return the positions of the variables that are neither states nor ports.
+	 */
+	private int[] dVariablePositions() {
+		boolean[] isStateOrPort = new boolean[bdd_mgr.varNum()];
+		for (int position : statePositions()) {
+			isStateOrPort[position] = true;
+		}
+		for (int position : portPositions()) {
+			isStateOrPort[position] = true;
+		}
+		List<Integer> positions = new ArrayList<Integer>();
+		for (int position = 0; position < isStateOrPort.length; position++) {
+			if (!isStateOrPort[position]) {
+				positions.add(position);
+			}
+		}
+		return toArray(positions);
+	}
+
+	private int[] toArray(List<Integer> list) {
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	public synchronized void specifyModelFingerprint(String fingerprint) {
+		this.modelFingerprint = fingerprint;
+		if (variableOrderStore == null) {
+			return;
+		}
+		int[] order = variableOrderStore.load(fingerprint);
+		if (order == null) {
+			return;
+		}
+		if (!isVariableOrder(order)) {
+			logger.warn("The stored variable order does not match the variables of the model, it is ignored.");
+			return;
+		}
+		bdd_mgr.setVarOrder(order);
+		learnedVariableOrder = true;
+		logger.info("Variable order of model " + fingerprint + " loaded, the variables are not reordered.");
+	}
+
+	/**
+	 * Saves the current variable order for the model, unless it has been loaded from the store.
+	 */
+	private void storeVariableOrder() {
+		if (variableOrderStore != null && modelFingerprint != null && !learnedVariableOrder) {
+			variableOrderStore.save(modelFingerprint, bdd_mgr.getVarOrder());
+			logger.debug("Variable order of model " + modelFingerprint + " saved.");
+		}
+	}
+
+	/**
+	 * @return whether the order contains each variable of the BDD manager exactly once.
+	 */
+	private boolean isVariableOrder(int[] order) {
+		if (order.length != bdd_mgr.varNum()) {
+			return false;
+		}
+		boolean[] seen = new boolean[order.length];
+		for (int variable : order) {
+			if (variable < 0 || variable >= order.length || seen[variable]) {
+				return false;
+			}
+			seen[variable] = true;
+		}
+		return true;
+	}
+
+	/**
+	 * Reorders the variables according to the configured strategy. Nothing is done if the variables are never
+	 * reordered or if they are reordered automatically by the BDD manager.
+	 */
+	private void reorder() {
+		if (learnedVariableOrder) {
+			return;
+		}
+		switch (reorderingStrategy) {
+		case NONE:
+		case AUTO:
+			return;
+		case WIN2:
+			bdd_mgr.reorder(BDDFactory.REORDER_WIN2);
+			break;
+		case WIN2ITE:
+			bdd_mgr.reorder(BDDFactory.REORDER_WIN2ITE);
+			break;
+		case WIN3:
+			bdd_mgr.reorder(BDDFactory.REORDER_WIN3);
+			break;
+		case WIN3ITE:
+			bdd_mgr.reorder(BDDFactory.REORDER_WIN3ITE);
+			break;
+		case SIFT:
+			bdd_mgr.reorder(BDDFactory.REORDER_SIFT);
+			break;
+		case SIFTITE:
+			bdd_mgr.reorder(BDDFactory.REORDER_SIFTITE);
+			break;
+		case RANDOM:
+			bdd_mgr.reorder(BDDFactory.REORDER_RANDOM);
+			break;
 		}
 	}
 
@@ -463,4 +970,16 @@ public class BDDBIPEngineImpl implements BDDBIPEngine {
 		return bdd_mgr;
 	}
 
+	public synchronized MaximalInteractionMode getMaximalInteractionMode() {
+		return maximalInteractionMode;
+	}
+
+	/**
+	 * Selects how the maximal interactions are computed at each execution cycle. By default they are computed
+	 * symbolically.
+	 */
+	public synchronized void setMaximalInteractionMode(MaximalInteractionMode maximalInteractionMode) {
+		this.maximalInteractionMode = maximalInteractionMode;
+	}
+
 }
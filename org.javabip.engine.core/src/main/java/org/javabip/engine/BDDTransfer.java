@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javabip.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+
+/**
+ * Copies BDDs from one BDD manager to another one over the same variables, node by node from the leaves up. It is used
+ * to gather into the engine BDD manager the BDDs computed by other threads in their own BDD managers, which are not
+ * thread-safe.
+ */
+class BDDTransfer {
+
+	private BDDTransfer() {
+	}
+
+	/**
+	 * Copies a BDD into another BDD manager. Neither BDD manager may be used by another thread during the copy.
+	 * 
+	 * @param bdd
+	 *            the BDD to copy, which is not freed.
+	 * @param target
+	 *            the BDD manager of the copy, with at least the variables of the BDD.
+	 * @return the copy of the BDD in the target BDD manager.
+	 */
+	static BDD copy(BDD bdd, BDDFactory target) {
+		Map<BDD, BDD> copies = new HashMap<BDD, BDD>();
+		List<BDD> visitedNodes = new ArrayList<BDD>();
+		try {
+			return copyNode(bdd, target, copies, visitedNodes).id();
+		} finally {
+			for (BDD node : visitedNodes) {
+				node.free();
+			}
+			for (BDD copy : copies.values()) {
+				copy.free();
+			}
+		}
+	}
+
+	private static BDD copyNode(BDD node, BDDFactory target, Map<BDD, BDD> copies, List<BDD> visitedNodes) {
+		BDD copy = copies.get(node);
+		if (copy != null) {
+			return copy;
+		}
+		if (node.isZero()) {
+			copy = target.zero();
+		} else if (node.isOne()) {
+			copy = target.one();
+		} else {
+			BDD low = node.low();
+			BDD high = node.high();
+			visitedNodes.add(low);
+			visitedNodes.add(high);
+			BDD lowCopy = copyNode(low, target, copies, visitedNodes);
+			BDD highCopy = copyNode(high, target, copies, visitedNodes);
+			BDD variable = target.ithVar(node.var());
+			copy = variable.ite(highCopy, lowCopy);
+			variable.free();
+		}
+		copies.put(node, copy);
+		return copy;
+	}
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javabip.engine;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+import net.sf.javabdd.BDDVarSet;
+
+import org.javabip.engine.api.ConjunctionStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Conjoins collections of constraint BDDs following a conjunction strategy. With the balanced strategies, the
+ * constraints are conjoined pairwise, in a balanced tree, instead of being folded one by one into a single BDD: the
+ * intermediate BDDs are then conjunctions of few constraints for as long as possible, rather than growing to the size
+ * of the full product from the first steps. With the clustered strategy, the pairs of each level of the tree are
+ * chosen by the overlap of the supports of the BDDs, so that constraints over the same variables are conjoined first.
+ * 
+ * The number of live nodes of the BDD manager is sampled after each step, and the largest sample is reported, together
+ * with the size of each intermediate BDD when tracing. Nodes that are only live within a step are not sampled.
+ */
+class ConjunctionScheduler {
+
+	private static Logger logger = LoggerFactory.getLogger(ConjunctionScheduler.class);
+
+	private BDDFactory bdd_mgr;
+
+	private ConjunctionStrategy strategy;
+
+	/** The highest number of live nodes of the BDD manager sampled after a conjunction step. */
+	private int maxLiveNodesAfterStep = 0;
+
+	ConjunctionScheduler(BDDFactory bdd_mgr, ConjunctionStrategy strategy) {
+		this.bdd_mgr = bdd_mgr;
+		this.strategy = strategy;
+	}
+
+	/**
+	 * Computes the conjunction of the given BDDs, which are freed.
+	 * 
+	 * @param bdds
+	 *            the BDDs to conjoin.
+	 * @param description
+	 *            the description of the constraints, for the reports.
+	 * @return the conjunction of the BDDs, one if there are none.
+	 */
+	BDD conjoin(Collection<BDD> bdds, String description) {
+		if (bdds.isEmpty()) {
+			return bdd_mgr.one();
+		}
+		List<BDD> level = new ArrayList<BDD>(bdds);
+		int step = 0;
+		BDD result;
+		if (strategy == ConjunctionStrategy.LINEAR) {
+			result = level.get(0);
+			for (int i = 1; i < level.size(); i++) {
+				result = result.andWith(level.get(i));
+				report(description, ++step, result);
+			}
+		} else {
+			if (strategy == ConjunctionStrategy.CLUSTERED) {
+				sortByTopVariable(level);
+			}
+			while (level.size() > 1) {
+				if (strategy == ConjunctionStrategy.CLUSTERED) {
+					pairBySupport(level);
+				}
+				List<BDD> nextLevel = new ArrayList<BDD>((level.size() + 1) / 2);
+				for (int i = 0; i + 1 < level.size(); i += 2) {
+					BDD conjunction = level.get(i).andWith(level.get(i + 1));
+					report(description, ++step, conjunction);
+					nextLevel.add(conjunction);
+				}
+				if (level.size() % 2 == 1) {
+					nextLevel.add(level.get(level.size() - 1));
+				}
+				level = nextLevel;
+			}
+			result = level.get(0);
+		}
+		logger.debug("Conjunction of {} {} in {} steps, at most {} live nodes after each step so far.", new Object[] {
+				bdds.size(), description, step, maxLiveNodesAfterStep });
+		return result;
+	}
+
+	/**
+	 * Reorders the BDDs of a level of the tree so that the BDDs at positions 2i and 2i + 1 are conjoined together. In
+	 * order, each BDD that is not paired yet is paired with the following BDD whose support has the highest Jaccard
+	 * index with its own, i.e. the most variables in common relative to the variables of both.
+	 */
+	private void pairBySupport(List<BDD> bdds) {
+		List<BDD> remaining = new ArrayList<BDD>(bdds);
+		List<BitSet> supports = new ArrayList<BitSet>(bdds.size());
+		for (BDD bdd : bdds) {
+			supports.add(support(bdd));
+		}
+		bdds.clear();
+		while (!remaining.isEmpty()) {
+			BDD first = remaining.remove(0);
+			BitSet firstSupport = supports.remove(0);
+			bdds.add(first);
+			int closest = closestBySupport(firstSupport, supports);
+			if (closest >= 0) {
+				bdds.add(remaining.remove(closest));
+				supports.remove(closest);
+			}
+		}
+	}
+
+	/**
+	 * @return the variables of the support of the BDD.
+	 */
+	static BitSet support(BDD bdd) {
+		BitSet variables = new BitSet();
+		BDDVarSet support = bdd.support();
+		for (int variable : support.toArray()) {
+			variables.set(variable);
+		}
+		support.free();
+		return variables;
+	}
+
+	/**
+	 * @return the index of the candidate support with the highest Jaccard index with the given support, the first one
+	 *         in case of a tie, or -1 if there are no candidates.
+	 */
+	static int closestBySupport(BitSet support, List<BitSet> candidates) {
+		int closest = -1;
+		double closestOverlap = -1;
+		for (int i = 0; i < candidates.size(); i++) {
+			BitSet common = (BitSet) support.clone();
+			common.and(candidates.get(i));
+			BitSet all = (BitSet) support.clone();
+			all.or(candidates.get(i));
+			double overlap = all.isEmpty() ? 0 : (double) common.cardinality() / all.cardinality();
+			if (overlap > closestOverlap) {
+				closest = i;
+				closestOverlap = overlap;
+			}
+		}
+		return closest;
+	}
+
+	/**
+	 * Sorts BDDs by the level of their topmost variable, the constants first.
+	 */
+	void sortByTopVariable(List<BDD> bdds) {
+		Collections.sort(bdds, new Comparator<BDD>() {
+			public int compare(BDD first, BDD second) {
+				int firstLevel = topLevel(first);
+				int secondLevel = topLevel(second);
+				return firstLevel < secondLevel ? -1 : (firstLevel == secondLevel ? 0 : 1);
+			}
+		});
+	}
+
+	private int topLevel(BDD bdd) {
+		return bdd.isZero() || bdd.isOne() ? -1 : bdd_mgr.var2Level(bdd.var());
+	}
+
+	private void report(String description, int step, BDD intermediate) {
+		int nodeNum = bdd_mgr.getNodeNum();
+		if (nodeNum > maxLiveNodesAfterStep) {
+			maxLiveNodesAfterStep = nodeNum;
+		}
+		if (logger.isTraceEnabled()) {
+			logger.trace("Conjunction of {}, step {}: {} nodes in the intermediate BDD, {} live nodes.", new Object[] {
+					description, step, intermediate.nodeCount(), nodeNum });
+		}
+	}
+
+	/**
+	 * @return the highest number of live nodes of the BDD manager sampled after a conjunction step.
+	 */
+	int getMaxLiveNodesAfterStep() {
+		return maxLiveNodesAfterStep;
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.javabip.engine;
+
+import java.util.Hashtable;
+import java.util.Map;
+
+import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+
+/**
+ * Maintains the conjunction of a set of BDDs, one per key, incrementally. The BDDs are the leaves of a balanced binary
+ * tree whose internal nodes hold the conjunction of their children. When the BDD of a key is updated, only the
+ * internal nodes on the path from its leaf to the root are recomputed, the next time the root is requested.
+ *
+ * The leaves belong to the caller and are never freed by the tree, whereas the internal nodes belong to the tree.
+ *
+ * @param <K>
+ *            the type of the keys, e.g. the components.
+ */
+public class ConjunctionTree<K> {
+
+	private BDDFactory bdd_mgr;
+
+	private Map<K, Integer> keyToLeaf = new Hashtable<K, Integer>();
+
+	/** Number of leaves of the tree, always a power of two. */
+	private int capacity;
+
+	/**
+	 * The nodes of the tree: node 1 is the root, the children of node i are 2i and 2i+1 and the leaves are the nodes
+	 * from capacity onwards. A null node stands for the constant one.
+	 */
+	private BDD[] nodes;
+
+	/** Internal nodes that have to be recomputed. */
+	private boolean[] dirty;
+
+	private BDD one;
+
+	public ConjunctionTree(BDDFactory bdd_mgr) {
+		this.bdd_mgr = bdd_mgr;
+		this.capacity = 1;
+		this.nodes = new BDD[2];
+		this.dirty = new boolean[2];
+	}
+
+	/**
+	 * Sets the BDD of a key and marks the path from its leaf to the root for recomputation.
+	 */
+	public void update(K key, BDD bdd) {
+		Integer leaf = keyToLeaf.get(key);
+		if (leaf == null) {
+			if (keyToLeaf.size() == capacity) {
+				grow();
+			}
+			leaf = keyToLeaf.size();
+			keyToLeaf.put(key, leaf);
+		}
+		int node = capacity + leaf;
+		nodes[node] = bdd;
+		for (node = node / 2; node >= 1 && !dirty[node]; node = node / 2) {
+			dirty[node] = true;
+		}
+	}
+
+	/**
+	 * @return the conjunction of the BDDs of all the keys. It belongs to the tree and must not be freed by the caller.
+	 */
+	public BDD root() {
+		BDD root = capacity == 1 ? nodes[1] : recompute(1);
+		if (root != null) {
+			return root;
+		}
+		if (one == null) {
+			one = bdd_mgr.one();
+		}
+		return one;
+	}
+
+	private BDD recompute(int node) {
+		if (node >= capacity || !dirty[node]) {
+			return nodes[node];
+		}
+		BDD left = recompute(2 * node);
+		BDD right = recompute(2 * node + 1);
+		if (nodes[node] != null) {
+			nodes[node].free();
+		}
+		if (left == null) {
+			nodes[node] = right == null ? null : right.id();
+		} else if (right == null) {
+			nodes[node] = left.id();
+		} else {
+			nodes[node] = left.and(right);
+		}
+		dirty[node] = false;
+		return nodes[node];
+	}
+
+	/**
+	 * Doubles the number of leaves. The internal nodes are all recomputed the next time the root is requested.
+	 */
+	private void grow() {
+		BDD[] newNodes = new BDD[4 * capacity];
+		System.arraycopy(nodes, capacity, newNodes, 2 * capacity, capacity);
+		for (int node = 1; node < capacity; node++) {
+			if (nodes[node] != null) {
+				nodes[node].free();
+			}
+		}
+		capacity = 2 * capacity;
+		nodes = newNodes;
+		dirty = new boolean[2 * capacity];
+		for (int node = 1; node < capacity; node++) {
+			dirty[node] = true;
+		}
+	}
+
+}
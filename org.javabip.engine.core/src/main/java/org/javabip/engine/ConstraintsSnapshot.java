@@ -0,0 +1,288 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javabip.engine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binary snapshot of the total constraints BDD of a model, i.e. the conjunction of the behaviour, glue and data
+ * constraints, which can be restored instead of being recomputed at the next start of the same model.
+ *
+ * The file contains, in big-endian order: a magic number and the version of the format, the fingerprint of the model,
+ * the number of variables, the variable order, the positions of the state, port and d-variables, and the nodes of the
+ * BDD in post-order, each node being given by its variable and the references to its low and high children. The
+ * references 0 and 1 stand for the constants, the reference i + 2 for the i-th node.
+ */
+public class ConstraintsSnapshot {
+
+	private static final int MAGIC = 0x4A424950;
+	private static final int VERSION = 1;
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+
+	private static Logger logger = LoggerFactory.getLogger(ConstraintsSnapshot.class);
+
+	private ConstraintsSnapshot() {
+	}
+
+	/**
+	 * Writes the snapshot of a BDD.
+	 *
+	 * @param file
+	 *            the snapshot file.
+	 * @param fingerprint
+	 *            the fingerprint of the model.
+	 * @param bdd_mgr
+	 *            the BDD manager.
+	 * @param totalConstraints
+	 *            the BDD to be written.
+	 * @param statePositions
+	 *            the positions of the state variables.
+	 * @param portPositions
+	 *            the positions of the port variables.
+	 * @param dVariablePositions
+	 *            the positions of the d-variables.
+	 * @throws IOException
+	 *             when the file cannot be written.
+	 */
+	public static void save(File file, String fingerprint, BDDFactory bdd_mgr, BDD totalConstraints,
+			int[] statePositions, int[] portPositions, int[] dVariablePositions) throws IOException {
+		List<int[]> nodes = new ArrayList<int[]>();
+		Map<BDD, Integer> references = new HashMap<BDD, Integer>();
+		List<BDD> visitedNodes = new ArrayList<BDD>();
+		int root;
+		try {
+			root = writeNode(totalConstraints, nodes, references, visitedNodes);
+		} finally {
+			for (BDD node : visitedNodes) {
+				node.free();
+			}
+		}
+
+		byte[] fingerprintBytes = fingerprint.getBytes("UTF-8");
+		int[] order = bdd_mgr.getVarOrder();
+		int nbInts = 8 + order.length + statePositions.length + portPositions.length + dVariablePositions.length + 3
+				* nodes.size();
+		ByteBuffer buffer = ByteBuffer.allocate(4 * nbInts + 2 + fingerprintBytes.length);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putShort((short) fingerprintBytes.length);
+		buffer.put(fingerprintBytes);
+		buffer.putInt(bdd_mgr.varNum());
+		putInts(buffer, order);
+		buffer.putInt(statePositions.length);
+		putInts(buffer, statePositions);
+		buffer.putInt(portPositions.length);
+		putInts(buffer, portPositions);
+		buffer.putInt(dVariablePositions.length);
+		putInts(buffer, dVariablePositions);
+		buffer.putInt(nodes.size());
+		for (int[] node : nodes) {
+			putInts(buffer, node);
+		}
+		buffer.putInt(root);
+
+		File temporaryFile = new File(file.getPath() + ".tmp");
+		FileOutputStream output = new FileOutputStream(temporaryFile);
+		try {
+			output.write(buffer.array(), 0, buffer.position());
+		} finally {
+			output.close();
+		}
+		if (file.exists() && !file.delete() || !temporaryFile.renameTo(file)) {
+			temporaryFile.delete();
+			throw new IOException("Snapshot file " + file + " cannot be replaced.");
+		}
+	}
+
+	/**
+	 * Reads the snapshot of a BDD. The whole file is read and checked before the variable order of the snapshot is
+	 * applied to the BDD manager and the BDD is rebuilt, so that a truncated or corrupt file leaves the BDD manager as
+	 * it was.
+	 *
+	 * @return the restored BDD, or null if the snapshot does not match the given model.
+	 * @throws IOException
+	 *             when the file cannot be read, or is truncated or corrupt.
+	 */
+	public static BDD load(File file, String fingerprint, BDDFactory bdd_mgr, int[] statePositions,
+			int[] portPositions, int[] dVariablePositions) throws IOException {
+		int[] order;
+		int[] nodeFields;
+		int root;
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = input.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				logger.warn("Snapshot file " + file + " has an unknown format.");
+				return null;
+			}
+			byte[] fingerprintBytes = new byte[checkLength(buffer, getShortLength(buffer, file), 1, file)];
+			buffer.get(fingerprintBytes);
+			if (!fingerprint.equals(new String(fingerprintBytes, "UTF-8"))) {
+				logger.warn("Snapshot file " + file + " belongs to another model.");
+				return null;
+			}
+			int varNum = getInt(buffer, file);
+			order = getInts(buffer, varNum, file);
+			if (varNum != bdd_mgr.varNum()
+					|| !Arrays.equals(getInts(buffer, getInt(buffer, file), file), statePositions)
+					|| !Arrays.equals(getInts(buffer, getInt(buffer, file), file), portPositions)
+					|| !Arrays.equals(getInts(buffer, getInt(buffer, file), file), dVariablePositions)) {
+				logger.warn("Snapshot file " + file + " does not match the variables of the model.");
+				return null;
+			}
+			boolean[] ordered = new boolean[varNum];
+			for (int variable : order) {
+				if (variable < 0 || variable >= varNum || ordered[variable]) {
+					throw new IOException("Snapshot file " + file + " has an invalid variable order.");
+				}
+				ordered[variable] = true;
+			}
+
+			int nbNodes = checkLength(buffer, getInt(buffer, file), 12, file);
+			nodeFields = getInts(buffer, 3 * nbNodes, file);
+			for (int i = 0; i < nbNodes; i++) {
+				/* Post-order: the children of a node are the constants or the nodes before it */
+				int variable = nodeFields[3 * i];
+				int low = nodeFields[3 * i + 1];
+				int high = nodeFields[3 * i + 2];
+				if (variable < 0 || variable >= varNum || low < 0 || low >= i + 2 || high < 0 || high >= i + 2) {
+					throw new IOException("Snapshot file " + file + " has an invalid node.");
+				}
+			}
+			root = getInt(buffer, file);
+			if (root < 0 || root >= nbNodes + 2) {
+				throw new IOException("Snapshot file " + file + " has an invalid root.");
+			}
+		} finally {
+			input.close();
+		}
+
+		bdd_mgr.setVarOrder(order);
+		BDD[] nodes = new BDD[nodeFields.length / 3 + 2];
+		try {
+			nodes[ZERO] = bdd_mgr.zero();
+			nodes[ONE] = bdd_mgr.one();
+			for (int i = 2; i < nodes.length; i++) {
+				BDD variable = bdd_mgr.ithVar(nodeFields[3 * (i - 2)]);
+				try {
+					nodes[i] = variable.ite(nodes[nodeFields[3 * (i - 2) + 2]], nodes[nodeFields[3 * (i - 2) + 1]]);
+				} finally {
+					variable.free();
+				}
+			}
+			return nodes[root].id();
+		} finally {
+			for (BDD node : nodes) {
+				if (node != null) {
+					node.free();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the node and its descendants to the list of nodes, in post-order.
+	 *
+	 * @return the reference of the node.
+	 */
+	private static int writeNode(BDD node, List<int[]> nodes, Map<BDD, Integer> references, List<BDD> visitedNodes) {
+		if (node.isZero()) {
+			return ZERO;
+		}
+		if (node.isOne()) {
+			return ONE;
+		}
+		Integer reference = references.get(node);
+		if (reference != null) {
+			return reference;
+		}
+		BDD low = node.low();
+		BDD high = node.high();
+		visitedNodes.add(low);
+		visitedNodes.add(high);
+		int lowReference = writeNode(low, nodes, references, visitedNodes);
+		int highReference = writeNode(high, nodes, references, visitedNodes);
+		nodes.add(new int[] { node.var(), lowReference, highReference });
+		reference = nodes.size() + 1;
+		references.put(node, reference);
+		return reference;
+	}
+
+	private static void putInts(ByteBuffer buffer, int[] values) {
+		for (int value : values) {
+			buffer.putInt(value);
+		}
+	}
+
+	/**
+	 * @return the length read from the buffer, checked to be non-negative and to fit in the rest of the buffer with
+	 *         the given number of bytes per element.
+	 * @throws IOException
+	 *             when the file is truncated or corrupt.
+	 */
+	private static int checkLength(ByteBuffer buffer, int length, int bytesPerElement, File file) throws IOException {
+		if (length < 0 || length > buffer.remaining() / bytesPerElement) {
+			throw new IOException("Snapshot file " + file + " is truncated or corrupt.");
+		}
+		return length;
+	}
+
+	private static int getShortLength(ByteBuffer buffer, File file) throws IOException {
+		if (buffer.remaining() < 2) {
+			throw new IOException("Snapshot file " + file + " is truncated.");
+		}
+		return buffer.getShort() & 0xFFFF;
+	}
+
+	private static int getInt(ByteBuffer buffer, File file) throws IOException {
+		if (buffer.remaining() < 4) {
+			throw new IOException("Snapshot file " + file + " is truncated.");
+		}
+		return buffer.getInt();
+	}
+
+	private static int[] getInts(ByteBuffer buffer, int length, File file) throws IOException {
+		int[] values = new int[checkLength(buffer, length, 4, file)];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = buffer.getInt();
+		}
+		return values;
+	}
+
+}
@@ -17,8 +17,14 @@
  */
 package org.javabip.engine;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import net.sf.javabdd.BDD;
@@ -56,6 +62,37 @@ public class CurrentStateEncoderImpl implements CurrentStateEncoder {
 	/** The logger. */
 	private Logger logger = LoggerFactory.getLogger(CurrentStateEncoderImpl.class);
 
+	/** The default number of current state BDDs cached per component. */
+	public static final int DEFAULT_CACHE_CAPACITY = 64;
+
+	/** The number of current state BDDs cached per component. */
+	private int cacheCapacity;
+
+	/**
+	 * The cached current state BDDs of each component, keyed by the current state and the set of indices of the
+	 * disabled ports, in least recently used order.
+	 */
+	private Map<BIPComponent, Map<Entry<String, BitSet>, BDD>> currentStateBDDCache = new Hashtable<BIPComponent, Map<Entry<String, BitSet>, BDD>>();
+
+	/** The index of each disabled port of a component, enforceable ports first in their list order. */
+	private Map<BIPComponent, Map<String, Integer>> portToIndex = new Hashtable<BIPComponent, Map<String, Integer>>();
+
+	private long cacheHits;
+	private long cacheMisses;
+
+	public CurrentStateEncoderImpl() {
+		this(DEFAULT_CACHE_CAPACITY);
+	}
+
+	/**
+	 * @param cacheCapacity
+	 *            the number of current state BDDs cached per component. It is at least two, so that the BDD last
+	 *            returned for a component, which is still used by the engine, is never evicted.
+	 */
+	public CurrentStateEncoderImpl(int cacheCapacity) {
+		this.cacheCapacity = Math.max(2, cacheCapacity);
+	}
+
 	/**
 	 * Computes the current State BDD. Takes as an argument the current state of the component and computes the
 	 * disjunction of the BDD corresponding to this state with the negation of the BDDs of all the other states of this
@@ -83,10 +120,6 @@ public class CurrentStateEncoderImpl implements CurrentStateEncoder {
 		Behaviour behaviour = wrapper.getBehaviourByComponent(component);
 		assert (behaviour != null);
 
-		ArrayList<String> componentStates = new ArrayList<String>(behaviour.getStates());
-		Map<String, BDD> statesToBDDs = behaviourEncoder.getStateToBDDOfAComponent(component);
-		Map<String, BDD> portsToBDDs = behaviourEncoder.getPortToBDDOfAComponent(component);
-
 		if (currentState == null || currentState.isEmpty()) {
 			try {
 				logger.error("Current state of component {} is null or empty " + component.getId());
@@ -96,6 +129,35 @@ public class CurrentStateEncoderImpl implements CurrentStateEncoder {
 				throw e;
 			}
 		}
+
+		BitSet disabledPortIndices = disabledPortIndices(component, behaviour, disabledPorts);
+		Map<Entry<String, BitSet>, BDD> componentCache = currentStateBDDCache.get(component);
+		if (componentCache == null) {
+			componentCache = createComponentCache();
+			currentStateBDDCache.put(component, componentCache);
+		}
+		Entry<String, BitSet> key = new AbstractMap.SimpleEntry<String, BitSet>(currentState, disabledPortIndices);
+		BDD result = componentCache.get(key);
+		if (result != null) {
+			cacheHits++;
+			return result;
+		}
+		cacheMisses++;
+		result = currentStateBDD(component, behaviour, currentState, disabledPorts);
+		componentCache.put(key, result);
+		return result;
+	}
+
+	/**
+	 * Computes the conjunction of the BDD of the current state with the negation of the BDDs of all the other states
+	 * and of the disabled ports of the component.
+	 */
+	private BDD currentStateBDD(BIPComponent component, Behaviour behaviour, String currentState,
+			Set<Port> disabledPorts) {
+		ArrayList<String> componentStates = new ArrayList<String>(behaviour.getStates());
+		Map<String, BDD> statesToBDDs = behaviourEncoder.getStateToBDDOfAComponent(component);
+		Map<String, BDD> portsToBDDs = behaviourEncoder.getPortToBDDOfAComponent(component);
+
 		BDD result = engine.getBDDManager().one().and(statesToBDDs.get(currentState));
 		for (String componentState : componentStates) {
 
@@ -115,6 +177,69 @@ public class CurrentStateEncoderImpl implements CurrentStateEncoder {
 		return result;
 	}
 
+	/**
+	 * @return the indices of the disabled ports in the list of enforceable ports of the component. A disabled port that
+	 *         is not enforceable is given the next free index, so that every current state BDD is cached, and freed
+	 *         when it is evicted.
+	 */
+	private BitSet disabledPortIndices(BIPComponent component, Behaviour behaviour, Set<Port> disabledPorts) {
+		Map<String, Integer> componentPortToIndex = portToIndex.get(component);
+		if (componentPortToIndex == null) {
+			componentPortToIndex = new Hashtable<String, Integer>();
+			List<Port> enforceablePorts = behaviour.getEnforceablePorts();
+			for (int i = 0; i < enforceablePorts.size(); i++) {
+				componentPortToIndex.put(enforceablePorts.get(i).getId(), i);
+			}
+			portToIndex.put(component, componentPortToIndex);
+		}
+		BitSet indices = new BitSet(componentPortToIndex.size());
+		for (Port disabledPort : disabledPorts) {
+			Integer index = componentPortToIndex.get(disabledPort.getId());
+			if (index == null) {
+				index = componentPortToIndex.size();
+				componentPortToIndex.put(disabledPort.getId(), index);
+			}
+			indices.set(index);
+		}
+		return indices;
+	}
+
+	/**
+	 * Creates a least recently used cache of current state BDDs, which frees the BDDs it evicts.
+	 */
+	private Map<Entry<String, BitSet>, BDD> createComponentCache() {
+		return new LinkedHashMap<Entry<String, BitSet>, BDD>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Entry<Entry<String, BitSet>, BDD> eldest) {
+				if (size() > cacheCapacity) {
+					eldest.getValue().free();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.javabip.engine.api.CurrentStateEncoder#getCacheHits()
+	 */
+	public synchronized long getCacheHits() {
+		return cacheHits;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.javabip.engine.api.CurrentStateEncoder#getCacheMisses()
+	 */
+	public synchronized long getCacheMisses() {
+		return cacheMisses;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -18,22 +18,40 @@
 package org.javabip.engine;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+import net.sf.javabdd.BDDVarSet;
 
 import org.javabip.api.Accept;
 import org.javabip.api.BIPComponent;
 import org.javabip.api.BIPGlue;
+import org.javabip.api.DataWire;
 import org.javabip.api.PortBase;
 import org.javabip.api.Require;
 import org.javabip.engine.api.BDDBIPEngine;
 import org.javabip.engine.api.BIPCoordinator;
 import org.javabip.engine.api.BehaviourEncoder;
+import org.javabip.engine.api.ConjunctionStrategy;
 import org.javabip.engine.api.GlueEncoder;
 import org.javabip.exceptions.BIPEngineException;
 import org.slf4j.Logger;
@@ -54,6 +72,57 @@ public class GlueEncoderImpl implements GlueEncoder {
 	private BIPCoordinator wrapper;
 	private BIPGlue glueSpec;
 
+	/** Number of threads compiling the glue constraints, see setCompilationThreads(). */
+	private int compilationThreads = 1;
+
+	/** The smallest initial node table and cache sizes of the BDD manager of a compilation worker. */
+	private static final int MIN_WORKER_NODE_TABLE_SIZE = 1000;
+	private static final int MIN_WORKER_CACHE_SIZE = 1000;
+
+	/**
+	 * The own BDD manager of a compilation worker and the copies of the port BDDs in it, null for the glue encoder of
+	 * the engine, which uses the BDD manager of the engine and the port BDDs of the Behaviour Encoder.
+	 */
+	private BDDFactory workerManager;
+	private Hashtable<BIPComponent, BDD[]> workerPortBDDs;
+	private Hashtable<BIPComponent, Hashtable<String, BDD>> workerPortToBDD;
+
+	public GlueEncoderImpl() {
+	}
+
+	/**
+	 * Creates a compilation worker of a glue encoder, with its own BDD manager over the same variables in the same
+	 * order, and copies of the port BDDs in it. It must be created by the thread of the glue encoder.
+	 * 
+	 * The BDD manager of a worker starts with its share of the node table and cache sizes of the engine, and grows its
+	 * node table when it needs to, so that the memory of the workers together does not grow with their number.
+	 */
+	private GlueEncoderImpl(GlueEncoderImpl encoder, int nbWorkers) {
+		this.wrapper = encoder.wrapper;
+		this.glueSpec = encoder.glueSpec;
+		BDDFactory engineManager = encoder.engine.getBDDManager();
+		int nodeTableSize = Math.max(MIN_WORKER_NODE_TABLE_SIZE, engineManager.getNodeTableSize() / nbWorkers);
+		int cacheSize = Math.max(MIN_WORKER_CACHE_SIZE, engineManager.getCacheSize() / nbWorkers);
+		/* Native BDD packages have a single BDD manager, hence the workers use the Java one */
+		this.workerManager = BDDFactory.init("java", nodeTableSize, cacheSize);
+		workerManager.setVarNum(engineManager.varNum());
+		workerManager.setVarOrder(engineManager.getVarOrder());
+		this.workerPortBDDs = new Hashtable<BIPComponent, BDD[]>();
+		this.workerPortToBDD = new Hashtable<BIPComponent, Hashtable<String, BDD>>();
+		for (Map.Entry<BIPComponent, BDD[]> entry : encoder.behenc.getPortBDDs().entrySet()) {
+			BDD[] portBDDs = new BDD[entry.getValue().length];
+			for (int i = 0; i < portBDDs.length; i++) {
+				portBDDs[i] = workerManager.ithVar(entry.getValue()[i].var());
+			}
+			workerPortBDDs.put(entry.getKey(), portBDDs);
+			Hashtable<String, BDD> portToBDD = new Hashtable<String, BDD>();
+			for (Map.Entry<String, BDD> port : encoder.behenc.getPortToBDDOfAComponent(entry.getKey()).entrySet()) {
+				portToBDD.put(port.getKey(), workerManager.ithVar(port.getValue().var()));
+			}
+			workerPortToBDD.put(entry.getKey(), portToBDD);
+		}
+	}
+
 	/**
 	 * Function called by the BIPCoordinator when the Glue xml file is parsed and its contents are stored as BIPGlue
 	 * object that is given to this function as a parameter and stored in a global field of the class.
@@ -106,7 +175,7 @@ public class GlueEncoderImpl implements GlueEncoder {
 				ArrayList<BDD> portBDDs = new ArrayList<BDD>();
 				for (BIPComponent component : components) {
 					logger.trace("Component: " + component.getId() + " has Causes ports: " + causePort);
-					portBDDs.add(behenc.getBDDOfAPort(component, causePort.getId()));
+					portBDDs.add(portBDD(component, causePort.getId()));
 				}
 				logger.trace("Number of BDDs for port {} {}", causePort.getId(), portBDDs.size());
 
@@ -259,7 +328,7 @@ public class GlueEncoderImpl implements GlueEncoder {
 		for (BIPComponent effectInstance : requireEffectComponents) {
 			logger.trace("Require Effect port type: " + requires.getEffect().getId() + " of component "
 					+ requires.getEffect().getSpecType());
-			result.add(requireBDD(behenc.getBDDOfAPort(effectInstance, requires.getEffect().getId()), allPorts,
+			result.add(requireBDD(portBDD(effectInstance, requires.getEffect().getId()), allPorts,
 					allCardinalities));
 		}
 		return result;
@@ -325,9 +394,12 @@ public class GlueEncoderImpl implements GlueEncoder {
 		/* Find all causes component instances */
 		Hashtable<PortBase, ArrayList<BDD>> portsToBDDs = findCausesComponents(accept.getCauses());
 
+		BDD notAcceptedPortsCube = notAcceptedPortsCube(portsToBDDs);
 		for (BIPComponent effectInstance : acceptEffectComponents) {
-			result.add(acceptBDD(behenc.getBDDOfAPort(effectInstance, accept.getEffect().getId()), portsToBDDs));
+			result.add(acceptBDD(portBDD(effectInstance, accept.getEffect().getId()),
+					notAcceptedPortsCube));
 		}
+		notAcceptedPortsCube.free();
 		return result;
 	}
 
@@ -346,11 +418,11 @@ public class GlueEncoderImpl implements GlueEncoder {
 	BDD requireBDD(BDD requirePortHolder, List<Hashtable<PortBase, ArrayList<BDD>>> allCausesPorts,
 			List<Hashtable<PortBase, Integer>> requiredCardinalities) {
 
-		BDD allDisjunctiveCauses = engine.getBDDManager().zero();
+		BDD allDisjunctiveCauses = bddManager().zero();
 		logger.trace("Start computing the require BDDs");
 		for (Hashtable<PortBase, ArrayList<BDD>> oneCausePorts : allCausesPorts) {
 
-			BDD allCausesBDD = engine.getBDDManager().one();
+			BDD allCausesBDD = bddManager().one();
 			for (Enumeration<PortBase> portEnum = oneCausePorts.keys(); portEnum.hasMoreElements();) {
 
 				while (portEnum.hasMoreElements()) {
@@ -366,46 +438,16 @@ public class GlueEncoderImpl implements GlueEncoder {
 					if (checkingCardinalities == true) {
 						ArrayList<BDD> setOfPortBDDs = oneCausePorts.get(port);
 
-						/*
-						 * Gets all different subsets of size equal to the cardinality
-						 */
-
 						/*
 						 * TODO: Throw Exception if the cardinality specified in the Glue for a specific component type
-						 * is greater than the number of registered instances of this component type
+						 * is greater than the number of registered instances of this component type. For now, the cause
+						 * cannot be satisfied.
 						 */
-						ArrayList<HashSet<BDD>> subsetsOfGivenSize = HelperFunctions.enumerateSubsets(setOfPortBDDs,
-								requiredCardinalities.get(allCausesPorts.indexOf(oneCausePorts)).get(port));
+						int cardinality = requiredCardinalities.get(allCausesPorts.indexOf(oneCausePorts)).get(port);
 
 						logger.trace("Required port BDDs size: " + setOfPortBDDs.size());
 						logger.trace("Required port: " + port.getId() + " " + port.getSpecType());
-						int size = setOfPortBDDs.size();
-						BDD oneCauseBDD = engine.getBDDManager().zero();
-
-						for (HashSet<BDD> subset : subsetsOfGivenSize) {
-							BDD monomial = engine.getBDDManager().one();
-							for (int i = 0; i < size; i++) {
-								if (subset.contains(setOfPortBDDs.get(i))) {
-									/*
-									 * Cannot use andWith here. Do not want to free the BDDs assigned to the ports at
-									 * the Behaviour Encoder.
-									 */
-									BDD tmp = monomial.and(setOfPortBDDs.get(i));
-									monomial.free();
-									monomial = tmp;
-								} else {
-									/*
-									 * Cannot use andWith here. Do not want to free the BDDs assigned to the ports at
-									 * the Behaviour Encoder.
-									 */
-									BDD tmp = monomial.and(setOfPortBDDs.get(i).not());
-									monomial.free();
-									monomial = tmp;
-								}
-							}
-							logger.trace("before one Cause OR");
-							oneCauseBDD.orWith(monomial);
-						}
+						BDD oneCauseBDD = exactlyBDD(setOfPortBDDs, cardinality);
 
 						logger.trace("before all Causes AND");
 						allCausesBDD.andWith(oneCauseBDD);
@@ -422,95 +464,109 @@ public class GlueEncoderImpl implements GlueEncoder {
 	}
 
 	/**
-	 * Computes the BDD that corresponds to an Accept macro.
+	 * Computes the BDD that is true iff exactly the given number of the given port BDDs are true, i.e. the disjunction
+	 * of the monomials of all the subsets of this size, without enumerating them. The BDD counting the true port BDDs
+	 * up to the cardinality is updated port after port, with O(n.k) BDD operations instead of C(n,k) monomials.
+	 * 
+	 * @param portBDDs
+	 *            the BDDs of the port instances, which are not freed.
+	 * @param cardinality
+	 *            the number of port BDDs that must be true.
+	 * 
+	 * @return the BDD of the cardinality constraint, zero if there are less port BDDs than the cardinality.
+	 */
+	BDD exactlyBDD(List<BDD> portBDDs, int cardinality) {
+		if (cardinality < 0 || cardinality > portBDDs.size()) {
+			return bddManager().zero();
+		}
+		/* exactly[j] is true iff exactly j of the port BDDs considered so far are true */
+		BDD zero = bddManager().zero();
+		BDD[] exactly = new BDD[cardinality + 1];
+		exactly[0] = bddManager().one();
+		for (int j = 1; j <= cardinality; j++) {
+			exactly[j] = bddManager().zero();
+		}
+		for (BDD portBDD : portBDDs) {
+			/* Downwards, so that exactly[j - 1] still counts the previous port BDDs */
+			for (int j = cardinality; j >= 0; j--) {
+				BDD tmp = portBDD.ite(j == 0 ? zero : exactly[j - 1], exactly[j]);
+				exactly[j].free();
+				exactly[j] = tmp;
+			}
+		}
+		for (int j = 0; j < cardinality; j++) {
+			exactly[j].free();
+		}
+		zero.free();
+		return exactly[cardinality];
+	}
+
+	/**
+	 * Computes the conjunction of the negations of all the port BDDs registered in the Behaviour Encoder, except the
+	 * ones of the "causes" part of an Accept macro. It is computed once for all the effect instances of the macro, the
+	 * ports being looked up by their BDD variable.
 	 * 
-	 * @param BDD
-	 *            of the port of the component holder of the Accept macro
 	 * @param Hashtable
 	 *            of ports of the "causes" part of the Accept macro and the corresponding port BDDs of the component
 	 *            instances
 	 * 
-	 * @return the BDD that corresponds to an Accept macro.
+	 * @return the cube of the negated ports that are not accepted, one if there are no causes.
 	 */
-
-	BDD acceptBDD(BDD acceptPortHolder, Hashtable<PortBase, ArrayList<BDD>> acceptedPorts) {
-		BDD tmp;
-
-		ArrayList<BDD> totalPortBDDs = new ArrayList<BDD>();
+	BDD notAcceptedPortsCube(Hashtable<PortBase, ArrayList<BDD>> acceptedPorts) {
+		BDDFactory bdd_mgr = bddManager();
+		BDD cube = bdd_mgr.one();
 
 		/*
-		 * Get all port BDDs registered in the Behaviour Encoder and add them in the totalPortBDDs ArrayList.
+		 * An Accept macro without any cause port does not constrain the effect port.
 		 */
-		Map<BIPComponent, BDD[]> componentToBDDs = behenc.getPortBDDs();
+		if (acceptedPorts.isEmpty()) {
+			return cube;
+		}
 
-		for (BIPComponent component : componentToBDDs.keySet()) {
-			BDD[] portBDD = componentToBDDs.get(component);
-			for (int p = 0; p < portBDD.length; p++) {
-				totalPortBDDs.add(portBDD[p]);
+		BitSet acceptedVariables = new BitSet(bdd_mgr.varNum());
+		for (ArrayList<BDD> currentPortInstanceBDDs : acceptedPorts.values()) {
+			for (BDD portBDD : currentPortInstanceBDDs) {
+				acceptedVariables.set(portBDD.var());
 			}
 		}
-		logger.trace("totalPortBDDs size: " + totalPortBDDs.size());
-		BDD allCausesBDD = engine.getBDDManager().one();
-
-		if (acceptedPorts.size() > 1) {
-			logger.trace("Start computing the accept BDDs");
-			for (BDD portBDD : totalPortBDDs) {
-				boolean exist = false;
-
-				for (Enumeration<PortBase> portEnum = acceptedPorts.keys(); portEnum.hasMoreElements();) {
-					PortBase port = portEnum.nextElement();
-					ArrayList<BDD> currentPortInstanceBDDs = acceptedPorts.get(port);
-					logger.trace("currentPortInstanceBDDs size" + currentPortInstanceBDDs.size());
-					int indexPortBDD = 0;
-
-					if ((portBDD).equals(acceptPortHolder)) {
-						exist = true;
-					}
-					while (!exist && indexPortBDD < currentPortInstanceBDDs.size()) {
-						if (currentPortInstanceBDDs.get(indexPortBDD).equals(portBDD)) {
-							exist = true;
-
-						} else {
-							indexPortBDD++;
-						}
-					}
-				}
-				if (!exist) {
-					allCausesBDD.andWith(portBDD.not());
+		logger.trace("Start computing the accept BDDs");
+		for (BDD[] portBDDs : allPortBDDs()) {
+			for (BDD portBDD : portBDDs) {
+				int variable = portBDD.var();
+				if (!acceptedVariables.get(variable)) {
+					cube.andWith(bdd_mgr.nithVar(variable));
 				}
 			}
-		} else {
-			for (BDD portBDD : totalPortBDDs) {
-				boolean exist = false;
+		}
+		return cube;
+	}
 
-				for (Enumeration<PortBase> portEnum = acceptedPorts.keys(); portEnum.hasMoreElements();) {
-					PortBase port = portEnum.nextElement();
-					ArrayList<BDD> currentPortInstanceBDDs = acceptedPorts.get(port);
-					int indexPortBDD = 0;
+	/**
+	 * Computes the BDD that corresponds to an Accept macro.
+	 * 
+	 * @param BDD
+	 *            of the port of the component holder of the Accept macro
+	 * @param BDD
+	 *            of the negated ports that are not accepted, see notAcceptedPortsCube(), which is not freed
+	 * 
+	 * @return the BDD that corresponds to an Accept macro.
+	 */
 
-					if ((portBDD).equals(acceptPortHolder)) {
-						exist = true;
-					}
-					while (!exist && indexPortBDD < currentPortInstanceBDDs.size()) {
-						if (currentPortInstanceBDDs.get(indexPortBDD).equals(portBDD)) {
-							exist = true;
-						} else {
-							indexPortBDD++;
-						}
-					}
-					if (!exist) {
-						tmp = portBDD.not().and(allCausesBDD);
-						allCausesBDD.free();
-						allCausesBDD = tmp;
-					}
-				}
-			}
-		}
+	BDD acceptBDD(BDD acceptPortHolder, BDD notAcceptedPortsCube) {
+		/*
+		 * The port of the holder is always accepted, hence its variable is quantified away from the cube.
+		 */
+		BDDVarSet holderVariable = acceptPortHolder.support();
+		BDD allCausesBDD = notAcceptedPortsCube.exist(holderVariable);
+		holderVariable.free();
 		logger.trace("Finished computing the accept BDDs");
 		return allCausesBDD.orWith(acceptPortHolder.not());
 	}
 
 	public ArrayList<BDD> totalGlue() throws BIPEngineException {
+		if (compilationThreads > 1) {
+			return totalGlueInParallel();
+		}
 		ArrayList<BDD> allGlueBDDs = new ArrayList<BDD>();
 
 		if (!glueSpec.getRequiresConstraints().isEmpty() || !glueSpec.getRequiresConstraints().equals(null)) {
@@ -535,6 +591,251 @@ public class GlueEncoderImpl implements GlueEncoder {
 		return allGlueBDDs;
 	}
 
+	/**
+	 * Compiles the require and accept constraints with several workers, each with its own BDD manager, which take the
+	 * constraints in turn. Each worker conjoins the BDDs of its constraints, which are then copied into the BDD manager
+	 * of the engine.
+	 * 
+	 * @return one conjunction of glue BDDs per worker.
+	 * @throws BIPEngineException
+	 *             when a constraint is defined incorrectly or the compilation is interrupted.
+	 */
+	private ArrayList<BDD> totalGlueInParallel() throws BIPEngineException {
+		List<Require> requires = glueSpec.getRequiresConstraints();
+		List<Accept> accepts = glueSpec.getAcceptConstraints();
+		int nbConstraints = requires.size() + accepts.size();
+		int nbWorkers = Math.max(1, Math.min(compilationThreads, nbConstraints));
+		logger.debug("Compiling {} glue constraints with {} workers.", nbConstraints, nbWorkers);
+
+		ArrayList<GlueEncoderImpl> workers = new ArrayList<GlueEncoderImpl>(nbWorkers);
+		ExecutorService executor = Executors.newFixedThreadPool(nbWorkers);
+		try {
+			ArrayList<Future<BDD>> workerGlues = new ArrayList<Future<BDD>>(nbWorkers);
+			for (int w = 0; w < nbWorkers; w++) {
+				final GlueEncoderImpl worker = new GlueEncoderImpl(this, nbWorkers);
+				workers.add(worker);
+				final List<Require> workerRequires = new ArrayList<Require>();
+				final List<Accept> workerAccepts = new ArrayList<Accept>();
+				for (int c = w; c < nbConstraints; c += nbWorkers) {
+					if (c < requires.size()) {
+						workerRequires.add(requires.get(c));
+					} else {
+						workerAccepts.add(accepts.get(c - requires.size()));
+					}
+				}
+				workerGlues.add(executor.submit(new Callable<BDD>() {
+					public BDD call() throws BIPEngineException {
+						ArrayList<BDD> glueBDDs = new ArrayList<BDD>();
+						for (Require require : workerRequires) {
+							glueBDDs.addAll(worker.decomposeRequireGlue(require));
+						}
+						for (Accept accept : workerAccepts) {
+							glueBDDs.addAll(worker.decomposeAcceptGlue(accept));
+						}
+						return new ConjunctionScheduler(worker.workerManager, ConjunctionStrategy.BALANCED).conjoin(
+								glueBDDs, "glue constraints");
+					}
+				}));
+			}
+
+			ArrayList<BDD> workerResults = new ArrayList<BDD>(nbWorkers);
+			for (Future<BDD> workerGlue : workerGlues) {
+				workerResults.add(workerGlue.get());
+			}
+			ArrayList<BDD> allGlueBDDs = new ArrayList<BDD>(nbWorkers);
+			for (BDD workerResult : workerResults) {
+				allGlueBDDs.add(BDDTransfer.copy(workerResult, engine.getBDDManager()));
+			}
+			return allGlueBDDs;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.error("The compilation of the glue was interrupted.");
+			throw new BIPEngineException("The compilation of the glue was interrupted.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof BIPEngineException) {
+				throw (BIPEngineException) e.getCause();
+			}
+			logger.error("The compilation of the glue failed: " + e.getCause());
+			throw new BIPEngineException("The compilation of the glue failed: " + e.getCause());
+		} finally {
+			/*
+			 * The BDD managers of the workers may only be released once no worker uses them anymore
+			 */
+			executor.shutdown();
+			boolean interrupted = false;
+			while (!executor.isTerminated()) {
+				try {
+					executor.awaitTermination(1, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			for (GlueEncoderImpl worker : workers) {
+				worker.workerManager.done();
+			}
+		}
+	}
+
+	/**
+	 * Sets the number of threads compiling the glue constraints. Above one, the constraints are compiled in parallel
+	 * and totalGlue() returns one conjunction of glue BDDs per thread.
+	 */
+	public void setCompilationThreads(int compilationThreads) {
+		if (compilationThreads < 1) {
+			logger.error("The number of glue compilation threads must be positive.");
+			throw new BIPEngineException("The number of glue compilation threads must be positive.");
+		}
+		this.compilationThreads = compilationThreads;
+	}
+
+	/**
+	 * @return the BDD manager in which the glue BDDs are computed.
+	 */
+	private BDDFactory bddManager() {
+		return workerManager != null ? workerManager : engine.getBDDManager();
+	}
+
+	/**
+	 * @return the BDD of a port of a component, in the BDD manager of the glue BDDs.
+	 */
+	private BDD portBDD(BIPComponent component, String portName) throws BIPEngineException {
+		if (workerManager == null) {
+			return behenc.getBDDOfAPort(component, portName);
+		}
+		BDD portBDD = workerPortToBDD.get(component).get(portName);
+		if (portBDD == null) {
+			logger.error(
+					"BDD node of port {} of component {} is null. Possible reason: Port name in the glue not the same as in the BIP Spec.",
+					portName, component.getId());
+			throw new BIPEngineException("BDD node of a port " + portName + " of component " + component.getId()
+					+ " is null. Possible reason: Port name in the glue not the same as in the BIP Spec.");
+		}
+		return portBDD;
+	}
+
+	/**
+	 * @return the BDDs of the ports of all the components, in the BDD manager of the glue BDDs.
+	 */
+	private Collection<BDD[]> allPortBDDs() {
+		return workerManager != null ? workerPortBDDs.values() : behenc.getPortBDDs().values();
+	}
+
+	public int[] variableOrdering() {
+		/*
+		 * Group the registered components by type, in registration order.
+		 */
+		List<BIPComponent> components = new ArrayList<BIPComponent>(behenc.getStateBDDs().keySet());
+		Collections.sort(components, new Comparator<BIPComponent>() {
+			public int compare(BIPComponent first, BIPComponent second) {
+				return firstVariable(first) - firstVariable(second);
+			}
+		});
+		Map<String, List<BIPComponent>> typeToComponents = new LinkedHashMap<String, List<BIPComponent>>();
+		for (BIPComponent component : components) {
+			if (!typeToComponents.containsKey(component.getType())) {
+				typeToComponents.put(component.getType(), new ArrayList<BIPComponent>());
+			}
+			typeToComponents.get(component.getType()).add(component);
+		}
+
+		/*
+		 * Graph of the component types, where two types are connected if they appear in the same constraint.
+		 */
+		Map<String, Set<String>> connectedTypes = new LinkedHashMap<String, Set<String>>();
+		for (String type : typeToComponents.keySet()) {
+			connectedTypes.put(type, new LinkedHashSet<String>());
+		}
+		if (glueSpec != null) {
+			for (Require require : glueSpec.getRequiresConstraints()) {
+				for (List<PortBase> causes : require.getCauses()) {
+					connectTypes(connectedTypes, require.getEffect(), causes);
+				}
+			}
+			for (Accept accept : glueSpec.getAcceptConstraints()) {
+				connectTypes(connectedTypes, accept.getEffect(), accept.getCauses());
+			}
+			for (DataWire wire : glueSpec.getDataWires()) {
+				connectTypes(connectedTypes, wire.getFrom(), Collections.singletonList(wire.getTo()));
+			}
+		}
+
+		/*
+		 * Breadth-first traversal of the type graph. The instances of the types of each connected part are interleaved.
+		 */
+		ArrayList<Integer> order = new ArrayList<Integer>();
+		Set<String> visitedTypes = new HashSet<String>();
+		for (String firstType : connectedTypes.keySet()) {
+			if (visitedTypes.contains(firstType)) {
+				continue;
+			}
+			List<String> connectedPart = new ArrayList<String>();
+			LinkedList<String> typesToVisit = new LinkedList<String>();
+			typesToVisit.add(firstType);
+			visitedTypes.add(firstType);
+			int maxInstances = 0;
+			while (!typesToVisit.isEmpty()) {
+				String type = typesToVisit.removeFirst();
+				connectedPart.add(type);
+				maxInstances = Math.max(maxInstances, typeToComponents.get(type).size());
+				for (String neighbour : connectedTypes.get(type)) {
+					if (!visitedTypes.contains(neighbour)) {
+						visitedTypes.add(neighbour);
+						typesToVisit.add(neighbour);
+					}
+				}
+			}
+			for (int instance = 0; instance < maxInstances; instance++) {
+				for (String type : connectedPart) {
+					List<BIPComponent> instances = typeToComponents.get(type);
+					if (instance < instances.size()) {
+						addVariables(order, behenc.getStateBDDs().get(instances.get(instance)));
+						addVariables(order, behenc.getPortBDDs().get(instances.get(instance)));
+					}
+				}
+			}
+		}
+
+		int[] result = new int[order.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = order.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Connects the type of the effect with the types of the causes, if they are all registered.
+	 */
+	private void connectTypes(Map<String, Set<String>> connectedTypes, PortBase effect,
+			Iterable<PortBase> causes) {
+		if (effect == null || !connectedTypes.containsKey(effect.getSpecType())) {
+			return;
+		}
+		for (PortBase cause : causes) {
+			if (cause != null && connectedTypes.containsKey(cause.getSpecType())) {
+				connectedTypes.get(effect.getSpecType()).add(cause.getSpecType());
+				connectedTypes.get(cause.getSpecType()).add(effect.getSpecType());
+			}
+		}
+	}
+
+	private int firstVariable(BIPComponent component) {
+		BDD[] states = behenc.getStateBDDs().get(component);
+		if (states.length > 0) {
+			return states[0].var();
+		}
+		BDD[] ports = behenc.getPortBDDs().get(component);
+		return ports.length > 0 ? ports[0].var() : Integer.MAX_VALUE;
+	}
+
+	private void addVariables(List<Integer> order, BDD[] singleNodeBDDs) {
+		for (BDD singleNodeBDD : singleNodeBDDs) {
+			order.add(singleNodeBDD.var());
+		}
+	}
+
 	public void setBehaviourEncoder(BehaviourEncoder behaviourEncoder) {
 		this.behenc = behaviourEncoder;
 	}
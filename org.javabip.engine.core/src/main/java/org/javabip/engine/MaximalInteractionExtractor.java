@@ -0,0 +1,381 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.javabip.engine;
+
+import java.math.BigInteger;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+
+import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+import net.sf.javabdd.BDDVarSet;
+
+import org.javabip.exceptions.BIPEngineException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Computes the maximal interactions of the global BDD symbolically. The global BDD is projected on the port variables
+ * and the maximal elements (with respect to set inclusion of the enabled ports) of the projection are computed by a
+ * recursive operator on the BDD nodes. The resulting BDD contains exactly the maximal interactions, each of them with
+ * all the port variables assigned, so that enumerating its cubes enumerates the maximal interactions only.
+ *
+ * An instance is valid as long as the variable order of the BDD manager does not change, since the port variables
+ * are traversed in the order of their levels. It is therefore created at each execution cycle, and freed with free()
+ * once the interactions of the cycle have been drawn.
+ */
+public class MaximalInteractionExtractor {
+
+	private static Logger logger = LoggerFactory.getLogger(MaximalInteractionExtractor.class);
+
+	private BDDFactory bdd_mgr;
+
+	/** The port variables, sorted by their level in the BDD manager. */
+	private int[] portVariables;
+
+	/** The levels of the port variables, in the same order as portVariables. */
+	private int[] portLevels;
+
+	/** Single node BDDs of the port variables, in the same order as portVariables. */
+	private BDD[] portBDDs;
+
+	private Map<Entry<BDD, Integer>, BDD> maximalCache = new HashMap<Entry<BDD, Integer>, BDD>();
+	private Map<Entry<BDD, Integer>, BDD> downwardClosureCache = new HashMap<Entry<BDD, Integer>, BDD>();
+	/**
+	 * The number of interactions below each node, kept across the draws of pickOne until free() is called, so that
+	 * the draws among BDDs that share nodes count them only once.
+	 */
+	private Map<Entry<BDD, Integer>, BigInteger> countCache = new HashMap<Entry<BDD, Integer>, BigInteger>();
+
+	/** BDDs used as keys of the count cache, freed by free(). */
+	private List<BDD> countedNodes = new ArrayList<BDD>();
+
+	/**
+	 * BDDs obtained while descending the projected BDD. They are used as keys of the caches and are freed once the
+	 * computation has finished.
+	 */
+	private List<BDD> visitedNodes = new ArrayList<BDD>();
+
+	private BDD zero;
+	private BDD one;
+
+	/**
+	 * @param bdd_mgr
+	 *            the BDD manager of the engine.
+	 * @param positionsOfPorts
+	 *            the positions of the port variables in the BDD manager.
+	 */
+	public MaximalInteractionExtractor(final BDDFactory bdd_mgr, List<Integer> positionsOfPorts) {
+		this.bdd_mgr = bdd_mgr;
+		Integer[] sortedPorts = positionsOfPorts.toArray(new Integer[positionsOfPorts.size()]);
+		Arrays.sort(sortedPorts, new Comparator<Integer>() {
+			public int compare(Integer first, Integer second) {
+				return bdd_mgr.var2Level(first) - bdd_mgr.var2Level(second);
+			}
+		});
+		portVariables = new int[sortedPorts.length];
+		portLevels = new int[sortedPorts.length];
+		portBDDs = new BDD[sortedPorts.length];
+		for (int i = 0; i < sortedPorts.length; i++) {
+			portVariables[i] = sortedPorts[i];
+			portLevels[i] = bdd_mgr.var2Level(sortedPorts[i]);
+		}
+	}
+
+	/**
+	 * Existentially quantifies all the variables that are not port variables (states and d-variables).
+	 *
+	 * @param solns
+	 *            the global BDD.
+	 * @return the BDD of the interactions allowed by the global BDD, over the port variables only.
+	 */
+	public BDD portProjection(BDD solns) {
+		Set<Integer> ports = new HashSet<Integer>();
+		for (int variable : portVariables) {
+			ports.add(variable);
+		}
+		int[] otherVariables = new int[bdd_mgr.varNum() - ports.size()];
+		int position = 0;
+		for (int variable = 0; variable < bdd_mgr.varNum(); variable++) {
+			if (!ports.contains(variable)) {
+				otherVariables[position++] = variable;
+			}
+		}
+		if (otherVariables.length == 0) {
+			return solns.id();
+		}
+		BDDVarSet quantifiedVariables = bdd_mgr.makeSet(otherVariables);
+		BDD result = solns.exist(quantifiedVariables);
+		quantifiedVariables.free();
+		return result;
+	}
+
+	/**
+	 * Computes the BDD of the maximal interactions of the global BDD.
+	 *
+	 * @param solns
+	 *            the global BDD.
+	 * @return the BDD over the port variables whose satisfying assignments are the maximal interactions.
+	 */
+	public BDD maximalInteractions(BDD solns) {
+		BDD interactions = portProjection(solns);
+		zero = bdd_mgr.zero();
+		one = bdd_mgr.one();
+		for (int i = 0; i < portVariables.length; i++) {
+			portBDDs[i] = bdd_mgr.ithVar(portVariables[i]);
+		}
+
+		BDD result = maximal(interactions, 0).id();
+
+		freeAll(maximalCache.values());
+		freeAll(downwardClosureCache.values());
+		freeAll(visitedNodes);
+		freeAll(Arrays.asList(portBDDs));
+		maximalCache.clear();
+		downwardClosureCache.clear();
+		visitedNodes.clear();
+		zero.free();
+		one.free();
+		interactions.free();
+		return result;
+	}
+
+	/**
+	 * Draws one of the interactions of a BDD over the port variables uniformly at random, without enumerating them. A
+	 * number is drawn uniformly below the number of interactions, and the BDD is walked from the root to the
+	 * interaction with that rank, choosing at each port variable the branch that contains it. The numbers of
+	 * interactions are exact, hence the draw stays uniform whatever the number of ports.
+	 *
+	 * @param interactions
+	 *            a BDD over the port variables, typically the result of maximalInteractions, which is not false.
+	 * @param random
+	 *            the source of randomness.
+	 * @return the cube of the drawn interaction, in the format of allsat (-1 for the variables that are not ports).
+	 */
+	public byte[] pickOne(BDD interactions, Random random) {
+		byte[] cube = new byte[bdd_mgr.varNum()];
+		Arrays.fill(cube, (byte) -1);
+
+		BDD node = interactions.id();
+		countedNodes.add(node);
+		BigInteger total = count(node, 0);
+		if (total.signum() == 0) {
+			logger.error("No interaction to draw from a false BDD.");
+			throw new BIPEngineException("No interaction to draw from a false BDD.");
+		}
+		BigInteger rank;
+		do {
+			rank = new BigInteger(total.bitLength(), random);
+		} while (rank.compareTo(total) >= 0);
+
+		for (int index = 0; index < portVariables.length; index++) {
+			int variable = portVariables[index];
+			BigInteger highCount;
+			BDD high = node;
+			BDD low = node;
+			if (node.isOne() || bdd_mgr.var2Level(node.var()) > portLevels[index]) {
+				/* The port is a don't care, both values have the same number of interactions below them */
+				highCount = count(node, index + 1);
+			} else {
+				high = node.high();
+				low = node.low();
+				countedNodes.add(high);
+				countedNodes.add(low);
+				highCount = count(high, index + 1);
+			}
+			if (rank.compareTo(highCount) < 0) {
+				cube[variable] = 1;
+				node = high;
+			} else {
+				cube[variable] = 0;
+				rank = rank.subtract(highCount);
+				node = low;
+			}
+		}
+		return cube;
+	}
+
+	/**
+	 * Frees the BDDs kept to count the interactions drawn by pickOne. The counts are computed again at the next draw.
+	 */
+	public void free() {
+		freeAll(countedNodes);
+		countedNodes.clear();
+		countCache.clear();
+	}
+
+	/**
+	 * Counts the interactions represented by f over the port variables from the given index onwards. The key f must
+	 * not be freed before free() is called.
+	 */
+	private BigInteger count(BDD f, int index) {
+		if (f.isZero()) {
+			return BigInteger.ZERO;
+		}
+		if (index == portVariables.length) {
+			return BigInteger.ONE;
+		}
+		Entry<BDD, Integer> key = new AbstractMap.SimpleEntry<BDD, Integer>(f, index);
+		BigInteger result = countCache.get(key);
+		if (result != null) {
+			return result;
+		}
+
+		if (f.isOne() || bdd_mgr.var2Level(f.var()) > portLevels[index]) {
+			result = count(f, index + 1).shiftLeft(1);
+		} else {
+			BDD high = f.high();
+			BDD low = f.low();
+			countedNodes.add(high);
+			countedNodes.add(low);
+			result = count(high, index + 1).add(count(low, index + 1));
+		}
+		countCache.put(key, result);
+		return result;
+	}
+
+	/**
+	 * Computes the full valuation corresponding to an interaction, i.e. a satisfying assignment of the global BDD
+	 * where the ports have the values of the interaction.
+	 *
+	 * @param solns
+	 *            the global BDD.
+	 * @param interaction
+	 *            the cube of the interaction over the port variables.
+	 * @return the valuation of all the variables of the BDD manager (0 for the variables that are not constrained).
+	 */
+	public byte[] valuation(BDD solns, byte[] interaction) {
+		BDD interactionBDD = bdd_mgr.one();
+		for (int variable : portVariables) {
+			if (interaction[variable] == 0) {
+				interactionBDD.andWith(bdd_mgr.nithVar(variable));
+			} else {
+				interactionBDD.andWith(bdd_mgr.ithVar(variable));
+			}
+		}
+		BDD interactionSolutions = solns.and(interactionBDD);
+		interactionBDD.free();
+		BDD path = interactionSolutions.satOne();
+		interactionSolutions.free();
+
+		byte[] valuation = new byte[bdd_mgr.varNum()];
+		BDD node = path;
+		while (!node.isOne() && !node.isZero()) {
+			BDD next = node.low();
+			if (next.isZero()) {
+				valuation[node.var()] = 1;
+				next.free();
+				next = node.high();
+			}
+			node.free();
+			node = next;
+		}
+		node.free();
+		return valuation;
+	}
+
+	/**
+	 * Maximal elements of the interactions represented by f, over the port variables from the given index onwards.
+	 * The returned BDD belongs to the cache.
+	 */
+	private BDD maximal(BDD f, int index) {
+		if (f.isZero()) {
+			return zero;
+		}
+		if (index == portVariables.length) {
+			/* Only port variables are left in the support, hence f is one here */
+			return one;
+		}
+		Entry<BDD, Integer> key = new AbstractMap.SimpleEntry<BDD, Integer>(f, index);
+		BDD result = maximalCache.get(key);
+		if (result != null) {
+			return result;
+		}
+
+		if (f.isOne() || bdd_mgr.var2Level(f.var()) > portLevels[index]) {
+			/* The port is a don't care, so the maximal interactions always contain it */
+			result = portBDDs[index].and(maximal(f, index + 1));
+		} else {
+			BDD high = f.high();
+			BDD low = f.low();
+			visitedNodes.add(high);
+			visitedNodes.add(low);
+			/*
+			 * Interactions without the port are maximal only if they are not included in some interaction with the
+			 * port.
+			 */
+			BDD notIncluded = downwardClosure(high, index + 1).not();
+			BDD maximalWithoutPort = maximal(low, index + 1).and(notIncluded);
+			notIncluded.free();
+			result = portBDDs[index].ite(maximal(high, index + 1), maximalWithoutPort);
+			maximalWithoutPort.free();
+		}
+		maximalCache.put(key, result);
+		return result;
+	}
+
+	/**
+	 * All the interactions included in some interaction represented by f, over the port variables from the given index
+	 * onwards. The returned BDD belongs to the cache.
+	 */
+	private BDD downwardClosure(BDD f, int index) {
+		if (f.isZero()) {
+			return zero;
+		}
+		if (index == portVariables.length) {
+			return one;
+		}
+		Entry<BDD, Integer> key = new AbstractMap.SimpleEntry<BDD, Integer>(f, index);
+		BDD result = downwardClosureCache.get(key);
+		if (result != null) {
+			return result;
+		}
+
+		if (f.isOne() || bdd_mgr.var2Level(f.var()) > portLevels[index]) {
+			result = downwardClosure(f, index + 1).id();
+		} else {
+			BDD high = f.high();
+			BDD low = f.low();
+			visitedNodes.add(high);
+			visitedNodes.add(low);
+			BDD closureOfHigh = downwardClosure(high, index + 1);
+			BDD closureOfBoth = downwardClosure(low, index + 1).or(closureOfHigh);
+			result = portBDDs[index].ite(closureOfHigh, closureOfBoth);
+			closureOfBoth.free();
+		}
+		downwardClosureCache.put(key, result);
+		return result;
+	}
+
+	private void freeAll(Iterable<BDD> bdds) {
+		for (BDD bdd : bdds) {
+			bdd.free();
+		}
+	}
+
+}
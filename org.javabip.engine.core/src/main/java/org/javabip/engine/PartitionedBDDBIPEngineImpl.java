@@ -0,0 +1,219 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javabip.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+import net.sf.javabdd.BDDVarSet;
+
+import org.javabip.engine.api.ConjunctionStrategy;
+import org.javabip.engine.api.EngineConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * BDD engine that keeps the behaviour, glue and data constraints as a conjunctive partition, i.e. a list of clusters
+ * whose conjunction is the total constraints BDD, instead of a single monolithic BDD. The constraints are merged into
+ * clusters of bounded size by the overlap of their supports. In each cycle, the current state is conjoined with the clusters one after the other, and
+ * each state variable is quantified away as soon as no remaining cluster depends on it.
+ * 
+ * The port and d-variables are never quantified, hence the solutions give the same interactions as with the
+ * monolithic BDD. Snapshots of the total constraints are not supported.
+ */
+public class PartitionedBDDBIPEngineImpl extends BDDBIPEngineImpl {
+
+	private static Logger logger = LoggerFactory.getLogger(PartitionedBDDBIPEngineImpl.class);
+
+	/** Maximal number of nodes of a cluster made of several constraints. */
+	private int clusterNodeLimit;
+
+	/** Sorts the constraints and the clusters by the level of their topmost variable, see ConjunctionScheduler. */
+	private ConjunctionScheduler clusterScheduler;
+
+	/** The clusters, in the order in which they are conjoined with the current state. */
+	private ArrayList<BDD> clusters = new ArrayList<BDD>();
+
+	/**
+	 * The state variables that no cluster depends on, and for each cluster the state variables that no later cluster
+	 * depends on, which are quantified away before and after conjoining it. Null until the next cycle once the
+	 * clusters change.
+	 */
+	private BDDVarSet quantifiedBefore;
+	private ArrayList<BDDVarSet> quantifiedAfter;
+
+	public PartitionedBDDBIPEngineImpl() {
+		this(new EngineConfiguration());
+	}
+
+	/**
+	 * @param configuration
+	 *            the parameters of the BDD manager, of the computation of the maximal interactions and of the
+	 *            clusters.
+	 */
+	public PartitionedBDDBIPEngineImpl(EngineConfiguration configuration) {
+		super(configuration);
+		clusterNodeLimit = configuration.getPartitionClusterNodeLimit();
+		clusterScheduler = new ConjunctionScheduler(getBDDManager(), ConjunctionStrategy.CLUSTERED);
+	}
+
+	/**
+	 * Merges the constraints into clusters by the overlap of their supports. A cluster starts with the remaining
+	 * constraint with the topmost variable. The remaining constraint whose support has the highest Jaccard index with
+	 * the support of the cluster is conjoined with it as long as the conjunction does not exceed the node limit, and
+	 * otherwise starts a new cluster.
+	 */
+	protected void addConstraints(Collection<BDD> constraints, String description) {
+		List<BDD> remaining = new ArrayList<BDD>();
+		for (BDD constraint : constraints) {
+			if (constraint.isOne()) {
+				constraint.free();
+			} else {
+				remaining.add(constraint);
+			}
+		}
+		clusterScheduler.sortByTopVariable(remaining);
+		List<BitSet> supports = new ArrayList<BitSet>(remaining.size());
+		for (BDD constraint : remaining) {
+			supports.add(ConjunctionScheduler.support(constraint));
+		}
+		int nbClusters = clusters.size();
+		BDD cluster = null;
+		BitSet clusterSupport = null;
+		while (!remaining.isEmpty()) {
+			int next = cluster == null ? 0 : ConjunctionScheduler.closestBySupport(clusterSupport, supports);
+			BDD constraint = remaining.remove(next);
+			BitSet support = supports.remove(next);
+			if (cluster == null) {
+				cluster = constraint;
+				clusterSupport = support;
+				continue;
+			}
+			BDD merged = cluster.and(constraint);
+			if (merged.nodeCount() <= clusterNodeLimit) {
+				cluster.free();
+				constraint.free();
+				cluster = merged;
+				clusterSupport.or(support);
+			} else {
+				merged.free();
+				clusters.add(cluster);
+				cluster = constraint;
+				clusterSupport = support;
+			}
+		}
+		if (cluster != null) {
+			clusters.add(cluster);
+		}
+		freeSchedule();
+		logger.debug("{} {} merged into {} clusters, {} clusters in total.", new Object[] { constraints.size(),
+				description, clusters.size() - nbClusters, clusters.size() });
+	}
+
+	protected boolean hasConstraints() {
+		return !clusters.isEmpty();
+	}
+
+	/**
+	 * Conjoins the current state with the clusters one after the other, following the quantification schedule.
+	 */
+	protected BDD solutions(BDD currentState) {
+		if (quantifiedAfter == null) {
+			computeSchedule();
+		}
+		BDD solns = currentState.exist(quantifiedBefore);
+		for (int i = 0; i < clusters.size(); i++) {
+			BDD tmp = solns.relprod(clusters.get(i), quantifiedAfter.get(i));
+			solns.free();
+			solns = tmp;
+		}
+		return solns;
+	}
+
+	/**
+	 * Sorts the clusters by their topmost variable and computes for each cluster the state variables that can be
+	 * quantified away once it has been conjoined, i.e. the ones that no later cluster depends on.
+	 */
+	private void computeSchedule() {
+		BDDFactory bdd_mgr = getBDDManager();
+		clusterScheduler.sortByTopVariable(clusters);
+
+		int[] lastCluster = new int[bdd_mgr.varNum()];
+		Arrays.fill(lastCluster, -1);
+		for (int i = 0; i < clusters.size(); i++) {
+			BDDVarSet support = clusters.get(i).support();
+			for (int variable : support.toArray()) {
+				lastCluster[variable] = i;
+			}
+			support.free();
+		}
+
+		List<Integer> before = new ArrayList<Integer>();
+		List<List<Integer>> after = new ArrayList<List<Integer>>();
+		for (int i = 0; i < clusters.size(); i++) {
+			after.add(new ArrayList<Integer>());
+		}
+		for (int variable : statePositions()) {
+			if (lastCluster[variable] == -1) {
+				before.add(variable);
+			} else {
+				after.get(lastCluster[variable]).add(variable);
+			}
+		}
+		quantifiedBefore = bdd_mgr.makeSet(toVariables(before));
+		quantifiedAfter = new ArrayList<BDDVarSet>(clusters.size());
+		for (List<Integer> variables : after) {
+			quantifiedAfter.add(bdd_mgr.makeSet(toVariables(variables)));
+		}
+		logger.debug("Quantification schedule computed for {} clusters.", clusters.size());
+	}
+
+	private void freeSchedule() {
+		if (quantifiedAfter == null) {
+			return;
+		}
+		quantifiedBefore.free();
+		for (BDDVarSet variables : quantifiedAfter) {
+			variables.free();
+		}
+		quantifiedBefore = null;
+		quantifiedAfter = null;
+	}
+
+	private int[] toVariables(List<Integer> list) {
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	/**
+	 * Snapshots of the total constraints are not supported, the clusters are always computed.
+	 */
+	public synchronized boolean restoreTotalConstraints() {
+		logger.debug("Snapshots of the total constraints are not supported by the partitioned engine.");
+		return false;
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2012-2016 École polytechnique fédérale de Lausanne (EPFL), Switzerland
+ * Copyright 2012-2016 Crossing-Tech SA, Switzerland
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javabip.engine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the variable orders learned by the engine in a directory, one file per model fingerprint. The first line of a
+ * file is the fingerprint and the second line the variables from the top level to the bottom level.
+ *
+ * The store is only a cache: the orders that cannot be read or written are ignored, with a warning.
+ */
+public class VariableOrderStore {
+
+	private Logger logger = LoggerFactory.getLogger(VariableOrderStore.class);
+
+	private File directory;
+
+	public VariableOrderStore(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return the variable order stored for the fingerprint, or null if there is none.
+	 */
+	public int[] load(String fingerprint) {
+		File file = file(fingerprint);
+		if (!file.isFile()) {
+			return null;
+		}
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new FileReader(file));
+			String storedFingerprint = reader.readLine();
+			String variables = reader.readLine();
+			if (!fingerprint.equals(storedFingerprint) || variables == null) {
+				logger.warn("Variable order file " + file + " does not match the model, it is ignored.");
+				return null;
+			}
+			String[] tokens = variables.trim().split(" ");
+			int[] order = new int[tokens.length];
+			for (int i = 0; i < tokens.length; i++) {
+				order[i] = Integer.parseInt(tokens[i]);
+			}
+			return order;
+		} catch (IOException e) {
+			logger.warn("Variable order file " + file + " cannot be read: " + e.getMessage());
+			return null;
+		} catch (NumberFormatException e) {
+			logger.warn("Variable order file " + file + " is corrupt: " + e.getMessage());
+			return null;
+		} finally {
+			close(reader);
+		}
+	}
+
+	/**
+	 * Stores the variable order for the fingerprint. The file is written under a temporary name and renamed, so that a
+	 * concurrent engine never reads a partial order.
+	 */
+	public void save(String fingerprint, int[] order) {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			logger.warn("Directory " + directory + " for the variable orders cannot be created.");
+			return;
+		}
+		File file = file(fingerprint);
+		File temporaryFile = new File(directory, fingerprint + ".order.tmp");
+		PrintWriter writer = null;
+		try {
+			writer = new PrintWriter(new FileWriter(temporaryFile));
+			writer.println(fingerprint);
+			StringBuilder variables = new StringBuilder();
+			for (int variable : order) {
+				if (variables.length() > 0) {
+					variables.append(' ');
+				}
+				variables.append(variable);
+			}
+			writer.println(variables);
+			writer.close();
+			writer = null;
+			if (file.exists() && !file.delete() || !temporaryFile.renameTo(file)) {
+				logger.warn("Variable order file " + file + " cannot be replaced.");
+				temporaryFile.delete();
+			}
+		} catch (IOException e) {
+			logger.warn("Variable order file " + file + " cannot be written: " + e.getMessage());
+		} finally {
+			if (writer != null) {
+				writer.close();
+			}
+		}
+	}
+
+	private File file(String fingerprint) {
+		return new File(directory, fingerprint + ".order");
+	}
+
+	private void close(BufferedReader reader) {
+		if (reader != null) {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				logger.warn("Variable order file cannot be closed: " + e.getMessage());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,64 @@
+package org.javabip.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+
+import org.javabip.engine.api.ConjunctionStrategy;
+import org.junit.Test;
+
+/**
+ * Checks that the conjunction strategies compute the same conjunction of constraints over overlapping supports.
+ */
+public class ConjunctionSchedulerTests {
+
+	private static final int NB_VARIABLES = 12;
+
+	/**
+	 * @return implications between two variables, drawn at random, some of them sharing variables.
+	 */
+	private List<BDD> constraints(BDDFactory bdd_mgr, Random random, int nbConstraints) {
+		List<BDD> constraints = new ArrayList<BDD>();
+		for (int i = 0; i < nbConstraints; i++) {
+			BDD cause = bdd_mgr.ithVar(random.nextInt(NB_VARIABLES));
+			BDD effect = random.nextBoolean() ? bdd_mgr.ithVar(random.nextInt(NB_VARIABLES)) : bdd_mgr
+					.nithVar(random.nextInt(NB_VARIABLES));
+			constraints.add(cause.imp(effect));
+			cause.free();
+			effect.free();
+		}
+		constraints.add(bdd_mgr.one());
+		return constraints;
+	}
+
+	@Test
+	public void testStrategiesComputeTheSameConjunction() {
+		BDDFactory bdd_mgr = BDDFactory.init("java", 10000, 1000);
+		bdd_mgr.setVarNum(NB_VARIABLES);
+		try {
+			for (int nbConstraints = 1; nbConstraints <= 9; nbConstraints++) {
+				BDD expected = null;
+				for (ConjunctionStrategy strategy : ConjunctionStrategy.values()) {
+					ConjunctionScheduler scheduler = new ConjunctionScheduler(bdd_mgr, strategy);
+					BDD conjunction = scheduler.conjoin(constraints(bdd_mgr, new Random(nbConstraints), nbConstraints),
+							"constraints");
+					if (expected == null) {
+						expected = conjunction;
+					} else {
+						assertEquals(strategy + " with " + nbConstraints + " constraints", expected, conjunction);
+						conjunction.free();
+					}
+				}
+				expected.free();
+			}
+		} finally {
+			bdd_mgr.done();
+		}
+	}
+
+}
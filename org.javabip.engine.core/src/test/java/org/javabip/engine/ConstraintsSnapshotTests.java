@@ -0,0 +1,138 @@
+package org.javabip.engine;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+
+import org.junit.Test;
+
+/**
+ * Checks that a truncated or corrupt snapshot of the total constraints is rejected with an IOException, without
+ * changing the variable order of the BDD manager.
+ */
+public class ConstraintsSnapshotTests {
+
+	private static final String FINGERPRINT = "model";
+
+	private int[] statePositions = new int[] { 0, 1 };
+	private int[] portPositions = new int[] { 2, 3 };
+	private int[] dVariablePositions = new int[0];
+
+	private BDDFactory manager() {
+		BDDFactory bdd_mgr = BDDFactory.init("java", 1000, 100);
+		bdd_mgr.setVarNum(4);
+		return bdd_mgr;
+	}
+
+	private File snapshot(BDDFactory bdd_mgr) throws IOException {
+		File file = File.createTempFile("snapshot", ".bdd");
+		BDD totalConstraints = bdd_mgr.ithVar(0).andWith(bdd_mgr.ithVar(2)).orWith(bdd_mgr.ithVar(3));
+		bdd_mgr.setVarOrder(new int[] { 3, 2, 1, 0 });
+		ConstraintsSnapshot.save(file, FINGERPRINT, bdd_mgr, totalConstraints, statePositions, portPositions,
+				dVariablePositions);
+		bdd_mgr.setVarOrder(new int[] { 0, 1, 2, 3 });
+		totalConstraints.free();
+		return file;
+	}
+
+	/**
+	 * @return whether the snapshot has been rejected, the variable order of the BDD manager being unchanged.
+	 */
+	private boolean rejected(File file, BDDFactory bdd_mgr) {
+		int[] order = bdd_mgr.getVarOrder();
+		try {
+			BDD restored = ConstraintsSnapshot.load(file, FINGERPRINT, bdd_mgr, statePositions, portPositions,
+					dVariablePositions);
+			if (restored != null) {
+				restored.free();
+				return false;
+			}
+		} catch (IOException e) {
+			// rejected
+		}
+		assertArrayEquals(order, bdd_mgr.getVarOrder());
+		return true;
+	}
+
+	@Test
+	public void testTruncatedSnapshotIsRejected() throws Exception {
+		BDDFactory bdd_mgr = manager();
+		File file = snapshot(bdd_mgr);
+		try {
+			long length = file.length();
+			for (long truncatedLength = length - 1; truncatedLength >= 0; truncatedLength--) {
+				RandomAccessFile output = new RandomAccessFile(file, "rw");
+				try {
+					output.setLength(truncatedLength);
+				} finally {
+					output.close();
+				}
+				assertTrue("Snapshot truncated to " + truncatedLength + " bytes", rejected(file, bdd_mgr));
+			}
+		} finally {
+			file.delete();
+			bdd_mgr.done();
+		}
+	}
+
+	/**
+	 * Every int of the snapshot after the fingerprint is replaced in turn by a value out of range.
+	 */
+	@Test
+	public void testCorruptSnapshotIsRejected() throws Exception {
+		BDDFactory bdd_mgr = manager();
+		File file = snapshot(bdd_mgr);
+		try {
+			long length = file.length();
+			/* The magic number, the version and the fingerprint take 8 + 2 + 5 bytes */
+			for (long position = 15; position + 4 <= length; position += 4) {
+				for (int value : new int[] { -1, 1000, Integer.MAX_VALUE }) {
+					RandomAccessFile output = new RandomAccessFile(file, "rw");
+					int original;
+					try {
+						output.seek(position);
+						original = output.readInt();
+						output.seek(position);
+						output.writeInt(value);
+					} finally {
+						output.close();
+					}
+					assertTrue("Snapshot with " + value + " at byte " + position, rejected(file, bdd_mgr));
+					output = new RandomAccessFile(file, "rw");
+					try {
+						output.seek(position);
+						output.writeInt(original);
+					} finally {
+						output.close();
+					}
+				}
+			}
+			assertFalse(rejected(file, bdd_mgr));
+		} finally {
+			file.delete();
+			bdd_mgr.done();
+		}
+	}
+
+	@Test
+	public void testOtherModelIsNotRestored() throws Exception {
+		BDDFactory bdd_mgr = manager();
+		File file = snapshot(bdd_mgr);
+		try {
+			assertNull(ConstraintsSnapshot.load(file, "other", bdd_mgr, statePositions, portPositions,
+					dVariablePositions));
+		} finally {
+			file.delete();
+			bdd_mgr.done();
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+package org.javabip.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+
+import org.javabip.engine.api.BDDBIPEngine;
+import org.junit.Test;
+
+/**
+ * Compares the symbolic encoding of the require cardinalities with the enumeration of the monomials of all the subsets
+ * of the required size, which it replaces.
+ */
+public class GlueEncoderTests {
+
+	private static final int MAX_PORTS = 5;
+
+	/**
+	 * @return the disjunction of the monomials in which exactly the port BDDs of a subset of the given size are true.
+	 */
+	private BDD monomials(BDDFactory bdd_mgr, List<BDD> portBDDs, int cardinality) {
+		List<HashSet<BDD>> subsets = new ArrayList<HashSet<BDD>>();
+		if (cardinality == 0) {
+			subsets.add(new HashSet<BDD>());
+		} else if (cardinality <= portBDDs.size()) {
+			subsets.addAll(HelperFunctions.enumerateSubsets(portBDDs, cardinality));
+		}
+		BDD result = bdd_mgr.zero();
+		for (HashSet<BDD> subset : subsets) {
+			BDD monomial = bdd_mgr.one();
+			for (BDD portBDD : portBDDs) {
+				monomial.andWith(subset.contains(portBDD) ? portBDD.id() : portBDD.not());
+			}
+			result.orWith(monomial);
+		}
+		return result;
+	}
+
+	@Test
+	public void testExactlyBDDMatchesMonomials() {
+		BDDFactory bdd_mgr = BDDFactory.init("java", 1000, 100);
+		bdd_mgr.setVarNum(MAX_PORTS);
+		Map<String, Object> engineValues = new Hashtable<String, Object>();
+		engineValues.put("getBDDManager", bdd_mgr);
+		GlueEncoderImpl glueEncoder = new GlueEncoderImpl();
+		glueEncoder.setEngine(ModelProxies.proxy(BDDBIPEngine.class, engineValues));
+
+		try {
+			for (int nbPorts = 0; nbPorts <= MAX_PORTS; nbPorts++) {
+				List<BDD> portBDDs = new ArrayList<BDD>();
+				for (int i = 0; i < nbPorts; i++) {
+					portBDDs.add(bdd_mgr.ithVar(i));
+				}
+				for (int cardinality = 0; cardinality <= nbPorts + 1; cardinality++) {
+					BDD expected = monomials(bdd_mgr, portBDDs, cardinality);
+					BDD actual = glueEncoder.exactlyBDD(portBDDs, cardinality);
+					assertEquals("Exactly " + cardinality + " of " + nbPorts + " ports", expected, actual);
+					expected.free();
+					actual.free();
+				}
+				for (BDD portBDD : portBDDs) {
+					portBDD.free();
+				}
+			}
+		} finally {
+			bdd_mgr.done();
+		}
+	}
+
+	@Test
+	public void testExactlyBDDWithNegativeCardinality() {
+		BDDFactory bdd_mgr = BDDFactory.init("java", 1000, 100);
+		bdd_mgr.setVarNum(1);
+		Map<String, Object> engineValues = new Hashtable<String, Object>();
+		engineValues.put("getBDDManager", bdd_mgr);
+		GlueEncoderImpl glueEncoder = new GlueEncoderImpl();
+		glueEncoder.setEngine(ModelProxies.proxy(BDDBIPEngine.class, engineValues));
+
+		try {
+			List<BDD> portBDDs = new ArrayList<BDD>();
+			portBDDs.add(bdd_mgr.ithVar(0));
+			assertEquals(bdd_mgr.zero(), glueEncoder.exactlyBDD(portBDDs, -1));
+		} finally {
+			bdd_mgr.done();
+		}
+	}
+
+}
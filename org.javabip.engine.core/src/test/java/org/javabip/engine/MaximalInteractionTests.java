@@ -0,0 +1,213 @@
+package org.javabip.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+
+import org.junit.Test;
+
+/**
+ * Compares the symbolic computation of the maximal interactions (MaximalInteractionExtractor) with the enumeration of
+ * the cubes of the global BDD (the ENUMERATE_CUBES mode) on small hand-built BDDs.
+ *
+ * The BDD variables are a state variable (0), three port variables (1, 2 and 3) and a d-variable (4).
+ */
+public class MaximalInteractionTests {
+
+	private static final int STATE = 0;
+	private static final int D_VARIABLE = 4;
+	private static final List<Integer> PORTS = Arrays.asList(1, 2, 3);
+
+	/**
+	 * @return the interaction in which exactly the given ports are enabled, the other variables being unconstrained.
+	 */
+	private BDD interaction(BDDFactory bdd_mgr, Integer... enabledPorts) {
+		BDD result = bdd_mgr.one();
+		for (Integer port : PORTS) {
+			result.andWith(Arrays.asList(enabledPorts).contains(port) ? bdd_mgr.ithVar(port) : bdd_mgr.nithVar(port));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the disjunction of the interactions, each given by its enabled ports.
+	 */
+	private BDD interactions(BDDFactory bdd_mgr, Integer[]... interactions) {
+		BDD result = bdd_mgr.zero();
+		for (Integer[] enabledPorts : interactions) {
+			result.orWith(interaction(bdd_mgr, enabledPorts));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the sets of ports of the cubes, the ports that are not assigned being enabled as in the ENUMERATE_CUBES
+	 *         mode.
+	 */
+	private Set<Set<Integer>> portSets(List<byte[]> cubes) {
+		Set<Set<Integer>> result = new HashSet<Set<Integer>>();
+		for (byte[] cube : cubes) {
+			Set<Integer> ports = new TreeSet<Integer>();
+			for (Integer port : PORTS) {
+				if (cube[port] != 0) {
+					ports.add(port);
+				}
+			}
+			result.add(ports);
+		}
+		return result;
+	}
+
+	/**
+	 * Checks that the maximal interactions of the global BDD and the interactions drawn among them match the maximal
+	 * cubes of the global BDD.
+	 */
+	private void assertSameMaximals(BDDBIPEngineImpl engine, BDD solns) {
+		BDDFactory bdd_mgr = engine.getBDDManager();
+		Set<Set<Integer>> cubeMaximals = portSets(engine.enumerateMaximalCubes(solns, PORTS));
+
+		MaximalInteractionExtractor extractor = new MaximalInteractionExtractor(bdd_mgr, PORTS);
+		BDD maximalInteractions = extractor.maximalInteractions(solns);
+		@SuppressWarnings("unchecked")
+		List<byte[]> cubes = (List<byte[]>) maximalInteractions.allsat();
+		for (byte[] cube : cubes) {
+			for (Integer port : PORTS) {
+				assertTrue("Every port is assigned in the maximal interactions", cube[port] != -1);
+			}
+		}
+		assertEquals(cubeMaximals, portSets(cubes));
+
+		Random random = new Random(0);
+		Set<Set<Integer>> drawn = new HashSet<Set<Integer>>();
+		for (int i = 0; i < 100; i++) {
+			byte[] cube = extractor.pickOne(maximalInteractions, random);
+			Set<Set<Integer>> picked = portSets(Arrays.asList(cube));
+			assertTrue("Drawn interaction " + picked + " is maximal", cubeMaximals.containsAll(picked));
+			drawn.addAll(picked);
+		}
+		assertEquals("Every maximal interaction is drawn", cubeMaximals, drawn);
+		extractor.free();
+		maximalInteractions.free();
+	}
+
+	private BDDBIPEngineImpl engine() {
+		BDDBIPEngineImpl engine = new BDDBIPEngineImpl();
+		engine.getBDDManager().setVarNum(5);
+		return engine;
+	}
+
+	@Test
+	public void testIncomparableMaximals() {
+		BDDBIPEngineImpl engine = engine();
+		BDDFactory bdd_mgr = engine.getBDDManager();
+		BDD solns = interactions(bdd_mgr, new Integer[] {}, new Integer[] { 1 }, new Integer[] { 3 }, new Integer[] {
+				1, 2 }, new Integer[] { 2, 3 });
+		assertSameMaximals(engine, solns);
+		solns.free();
+	}
+
+	@Test
+	public void testSingleMaximal() {
+		BDDBIPEngineImpl engine = engine();
+		BDDFactory bdd_mgr = engine.getBDDManager();
+		BDD solns = interactions(bdd_mgr, new Integer[] {}, new Integer[] { 1 }, new Integer[] { 2 }, new Integer[] {
+				1, 2 }, new Integer[] { 1, 2, 3 });
+		assertSameMaximals(engine, solns);
+		solns.free();
+	}
+
+	@Test
+	public void testOnlyEmptyInteraction() {
+		BDDBIPEngineImpl engine = engine();
+		BDDFactory bdd_mgr = engine.getBDDManager();
+		BDD solns = interactions(bdd_mgr, new Integer[] {});
+		assertSameMaximals(engine, solns);
+		solns.free();
+	}
+
+	/**
+	 * A port that is not constrained by the global BDD is enabled in all the maximal interactions.
+	 */
+	@Test
+	public void testUnconstrainedPort() {
+		BDDBIPEngineImpl engine = engine();
+		BDDFactory bdd_mgr = engine.getBDDManager();
+		BDD solns = bdd_mgr.ithVar(1).orWith(bdd_mgr.ithVar(2)).andWith(bdd_mgr.ithVar(1).and(bdd_mgr.ithVar(2)).not());
+		assertSameMaximals(engine, solns);
+		solns.free();
+	}
+
+	/**
+	 * The interactions allowed in different states and with different d-variables are compared together.
+	 */
+	@Test
+	public void testStateAndDataVariables() {
+		BDDBIPEngineImpl engine = engine();
+		BDDFactory bdd_mgr = engine.getBDDManager();
+		BDD inState = bdd_mgr.ithVar(STATE).andWith(interactions(bdd_mgr, new Integer[] { 1 }, new Integer[] { 3 }));
+		BDD inOtherState = bdd_mgr.nithVar(STATE).andWith(
+				interactions(bdd_mgr, new Integer[] { 1, 3 }, new Integer[] { 2 }));
+		BDD withData = bdd_mgr.ithVar(D_VARIABLE).andWith(interactions(bdd_mgr, new Integer[] { 2, 3 }));
+		BDD solns = inState.orWith(inOtherState).orWith(withData);
+		assertSameMaximals(engine, solns);
+		solns.free();
+	}
+
+	/**
+	 * With more free ports than a double can count the interactions of, the draw is still uniform: two thirds of the
+	 * interactions of p0 | p1 have p0 enabled.
+	 */
+	@Test
+	public void testPickOneWithManyPorts() {
+		BDDFactory bdd_mgr = BDDFactory.init("java", 10000, 1000);
+		bdd_mgr.setVarNum(1100);
+		List<Integer> ports = new ArrayList<Integer>();
+		for (int i = 0; i < 1100; i++) {
+			ports.add(i);
+		}
+		MaximalInteractionExtractor extractor = new MaximalInteractionExtractor(bdd_mgr, ports);
+		BDD interactions = bdd_mgr.ithVar(0).orWith(bdd_mgr.ithVar(1));
+		Random random = new Random(0);
+		int withFirstPort = 0;
+		for (int i = 0; i < 600; i++) {
+			byte[] cube = extractor.pickOne(interactions, random);
+			assertTrue("Drawn interaction is in the BDD", cube[0] == 1 || cube[1] == 1);
+			withFirstPort += cube[0];
+		}
+		assertTrue(withFirstPort + " of 600 draws with the first port", withFirstPort > 340 && withFirstPort < 460);
+		extractor.free();
+		interactions.free();
+		bdd_mgr.done();
+	}
+
+	/**
+	 * An interaction that contains several interactions enumerated before it replaces all of them.
+	 */
+	@Test
+	public void testMaximalContainingSeveralCubes() {
+		BDDBIPEngineImpl engine = engine();
+		BDDFactory bdd_mgr = engine.getBDDManager();
+		List<BDD> parts = new ArrayList<BDD>();
+		parts.add(interactions(bdd_mgr, new Integer[] { 3 }));
+		parts.add(interactions(bdd_mgr, new Integer[] { 2 }));
+		parts.add(interactions(bdd_mgr, new Integer[] { 2, 3 }));
+		parts.add(interactions(bdd_mgr, new Integer[] { 1 }));
+		BDD solns = bdd_mgr.zero();
+		for (BDD part : parts) {
+			solns.orWith(part);
+		}
+		assertSameMaximals(engine, solns);
+		solns.free();
+	}
+
+}
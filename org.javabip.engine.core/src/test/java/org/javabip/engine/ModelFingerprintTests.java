@@ -0,0 +1,107 @@
+package org.javabip.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+
+import org.javabip.api.BIPComponent;
+import org.javabip.api.Behaviour;
+import org.javabip.api.Data;
+import org.javabip.api.Port;
+import org.javabip.engine.coordinator.ModelFingerprint;
+import org.junit.Test;
+
+/**
+ * Checks that the fingerprint of a model changes with the transitions and the data of the components, so that the
+ * snapshot of another model is never restored.
+ */
+public class ModelFingerprintTests {
+
+	/**
+	 * A component with the states s0 and s1 and the ports p and q. The port p is enabled in the first given state and
+	 * the port q in s1. The guard of p reads the given data, if any.
+	 */
+	private String fingerprint(String stateOfP, Data<?> guardOfP) {
+		BIPComponent component = ModelProxies.component("Switch");
+		Port p = ModelProxies.port("p", "Switch");
+		Port q = ModelProxies.port("q", "Switch");
+		Map<String, Set<Port>> stateToPorts = new Hashtable<String, Set<Port>>();
+		stateToPorts.put("s0", new HashSet<Port>());
+		stateToPorts.put("s1", new HashSet<Port>());
+		stateToPorts.get(stateOfP).add(p);
+		stateToPorts.get("s1").add(q);
+		Map<Port, Set<Data<?>>> guardData = new Hashtable<Port, Set<Data<?>>>();
+		if (guardOfP != null) {
+			guardData.put(p, Collections.<Data<?>> singleton(guardOfP));
+		}
+		Behaviour behaviour = ModelProxies.behaviour("Switch", Arrays.asList("s0", "s1"), Arrays.asList(p, q),
+				stateToPorts, guardData);
+
+		Map<BIPComponent, Behaviour> componentBehaviourMapping = new Hashtable<BIPComponent, Behaviour>();
+		componentBehaviourMapping.put(component, behaviour);
+		return ModelFingerprint.compute(Collections.singletonList(component), componentBehaviourMapping, null);
+	}
+
+	@Test
+	public void testSameModelSameFingerprint() {
+		assertEquals(fingerprint("s0", null), fingerprint("s0", null));
+		assertEquals(fingerprint("s0", ModelProxies.data("x", Integer.class)),
+				fingerprint("s0", ModelProxies.data("x", Integer.class)));
+	}
+
+	@Test
+	public void testChangedTransitionChangesFingerprint() {
+		assertFalse(fingerprint("s0", null).equals(fingerprint("s1", null)));
+	}
+
+	@Test
+	public void testChangedGuardDataChangesFingerprint() {
+		assertFalse(fingerprint("s0", null).equals(fingerprint("s0", ModelProxies.data("x", Integer.class))));
+		assertFalse(fingerprint("s0", ModelProxies.data("x", Integer.class)).equals(
+				fingerprint("s0", ModelProxies.data("y", Integer.class))));
+	}
+
+	/**
+	 * The snapshot saved for a model is not restored once a transition of the model has changed.
+	 */
+	@Test
+	public void testChangedBehaviourDoesNotRestoreSnapshot() throws Exception {
+		String savedFingerprint = fingerprint("s0", null);
+		String changedFingerprint = fingerprint("s1", null);
+
+		BDDFactory bdd_mgr = BDDFactory.init("java", 1000, 100);
+		bdd_mgr.setVarNum(4);
+		int[] statePositions = new int[] { 0, 1 };
+		int[] portPositions = new int[] { 2, 3 };
+		int[] dVariablePositions = new int[0];
+		BDD totalConstraints = bdd_mgr.ithVar(0).and(bdd_mgr.ithVar(2));
+
+		File file = File.createTempFile("snapshot", ".bdd");
+		try {
+			ConstraintsSnapshot.save(file, savedFingerprint, bdd_mgr, totalConstraints, statePositions, portPositions,
+					dVariablePositions);
+			assertNull(ConstraintsSnapshot.load(file, changedFingerprint, bdd_mgr, statePositions, portPositions,
+					dVariablePositions));
+			BDD restored = ConstraintsSnapshot.load(file, savedFingerprint, bdd_mgr, statePositions, portPositions,
+					dVariablePositions);
+			assertNotNull(restored);
+			assertEquals(totalConstraints, restored);
+		} finally {
+			file.delete();
+			bdd_mgr.done();
+		}
+	}
+
+}
@@ -0,0 +1,132 @@
+package org.javabip.engine;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.javabip.api.BIPComponent;
+import org.javabip.api.Behaviour;
+import org.javabip.api.Data;
+import org.javabip.api.Port;
+
+/**
+ * Builds the components, ports and behaviours of the small models of the tests as proxies of the API interfaces.
+ */
+class ModelProxies {
+
+	/**
+	 * Computes the value returned by a method of a proxy from its arguments.
+	 */
+	interface Answer {
+
+		Object answer(Object[] args);
+
+	}
+
+	private ModelProxies() {
+	}
+
+	/**
+	 * Creates an object implementing the interface, whose methods return the value associated with their name, or
+	 * computed by it when it is an Answer. Methods without a value return null if they are void and throw an
+	 * UnsupportedOperationException otherwise. Objects are only equal to themselves.
+	 */
+	static <T> T proxy(Class<T> type, final Map<String, Object> values) {
+		final String name = type.getSimpleName() + " " + values.get("getId");
+		Object proxy = Proxy.newProxyInstance(ModelProxies.class.getClassLoader(), new Class<?>[] { type },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("equals") && args != null && args.length == 1) {
+							return proxy == args[0];
+						}
+						if (method.getName().equals("hashCode") && args == null) {
+							return System.identityHashCode(proxy);
+						}
+						if (method.getName().equals("toString") && args == null) {
+							return name;
+						}
+						Object value = values.get(method.getName());
+						if (value instanceof Answer) {
+							return ((Answer) value).answer(args);
+						}
+						if (value != null) {
+							return value;
+						}
+						if (method.getReturnType() == void.class) {
+							return null;
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		return type.cast(proxy);
+	}
+
+	/**
+	 * @return a component whose type and id are both the given type.
+	 */
+	static BIPComponent component(String type) {
+		Map<String, Object> values = new Hashtable<String, Object>();
+		values.put("getType", type);
+		values.put("getId", type);
+		return proxy(BIPComponent.class, values);
+	}
+
+	/**
+	 * @return an enforceable port of the given component type.
+	 */
+	static Port port(String id, String type) {
+		Map<String, Object> values = new Hashtable<String, Object>();
+		values.put("getId", id);
+		values.put("getSpecType", type);
+		values.put("getType", "enforceable");
+		return proxy(Port.class, values);
+	}
+
+	/**
+	 * @return a data of the given name and type.
+	 */
+	static Data<?> data(String name, Class<?> type) {
+		Map<String, Object> values = new Hashtable<String, Object>();
+		values.put("name", name);
+		values.put("type", type);
+		values.put("getId", name);
+		return proxy(Data.class, values);
+	}
+
+	/**
+	 * Creates a behaviour whose ports are all enforceable.
+	 *
+	 * @param states
+	 *            the states, in the order of their BDD variables.
+	 * @param ports
+	 *            the enforceable ports, in the order of their BDD variables.
+	 * @param stateToPorts
+	 *            the ports enabled in each state.
+	 * @param guardData
+	 *            the data read by the guards of each port, none for the ports without an entry.
+	 */
+	static Behaviour behaviour(String type, List<String> states, List<Port> ports, Map<String, Set<Port>> stateToPorts,
+			final Map<Port, Set<Data<?>>> guardData) {
+		Map<String, Object> values = new Hashtable<String, Object>();
+		values.put("getId", type);
+		values.put("getComponentType", type);
+		values.put("getStates", new LinkedHashSet<String>(states));
+		values.put("getEnforceablePorts", ports);
+		values.put("getStateToPorts", stateToPorts);
+		values.put("portToDataInForGuard", new Answer() {
+			public Object answer(Object[] args) {
+				Set<Data<?>> data = guardData.get(args[0]);
+				return data != null ? data : Collections.<Data<?>> emptySet();
+			}
+		});
+		values.put("portToDataInForTransition", Collections.<Data<?>> emptySet());
+		return proxy(Behaviour.class, values);
+	}
+
+}
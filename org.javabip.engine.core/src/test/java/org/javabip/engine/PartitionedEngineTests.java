@@ -0,0 +1,252 @@
+package org.javabip.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+import net.sf.javabdd.BDDVarSet;
+
+import org.javabip.api.Accept;
+import org.javabip.api.BIPComponent;
+import org.javabip.api.BIPGlue;
+import org.javabip.api.Behaviour;
+import org.javabip.api.Data;
+import org.javabip.api.DataWire;
+import org.javabip.api.Port;
+import org.javabip.api.PortBase;
+import org.javabip.api.Require;
+import org.javabip.engine.api.BIPCoordinator;
+import org.javabip.engine.api.EngineConfiguration;
+import org.junit.Test;
+
+/**
+ * Checks that the engine with a partitioned transition relation gives the same solutions, over the port and
+ * d-variables, as the engine with a monolithic BDD.
+ *
+ * The model has three components C0, C1 and C2 with the states s0 and s1 and the ports a and b, only a being enabled
+ * in s0. C0.a and C1.a require each other, C0.b requires C2.b, and a d-variable may only be set when C0.a and C2.a
+ * are fired.
+ */
+public class PartitionedEngineTests {
+
+	private static final List<String> STATES = Arrays.asList("s0", "s1");
+
+	private List<BIPComponent> components = new ArrayList<BIPComponent>();
+	private Map<BIPComponent, Behaviour> behaviours = new Hashtable<BIPComponent, Behaviour>();
+	private Map<BIPComponent, List<Port>> ports = new Hashtable<BIPComponent, List<Port>>();
+	private BIPGlue glue;
+
+	/**
+	 * The engine and the encoders of the model, set up as the BIP Coordinator does.
+	 */
+	private class ModelEngine {
+
+		private BDDBIPEngineImpl engine;
+		private BehaviourEncoderImpl behenc = new BehaviourEncoderImpl();
+		private GlueEncoderImpl glueenc = new GlueEncoderImpl();
+		private CurrentStateEncoderImpl currstenc = new CurrentStateEncoderImpl();
+		private int nbPorts;
+		private int nbStates;
+
+		ModelEngine(BDDBIPEngineImpl engine) {
+			this.engine = engine;
+			BIPCoordinator coordinator = coordinator();
+			glueenc.setBehaviourEncoder(behenc);
+			glueenc.setEngine(engine);
+			glueenc.setBIPCoordinator(coordinator);
+			behenc.setEngine(engine);
+			behenc.setBIPCoordinator(coordinator);
+			currstenc.setBehaviourEncoder(behenc);
+			currstenc.setEngine(engine);
+			currstenc.setBIPCoordinator(coordinator);
+			engine.setBIPCoordinator(coordinator);
+
+			for (BIPComponent component : components) {
+				List<Port> componentPorts = ports.get(component);
+				behenc.createBDDNodes(component, componentPorts, STATES);
+				engine.informBehaviour(component, behenc.behaviourBDD(component));
+				for (int i = 0; i < componentPorts.size(); i++) {
+					int position = nbPorts + nbStates + STATES.size() + i;
+					behenc.getPositionsOfPorts().add(position);
+					behenc.getPortToPosition().put(componentPorts.get(i), position);
+				}
+				nbPorts += componentPorts.size();
+				nbStates += STATES.size();
+			}
+			glueenc.specifyGlue(glue);
+
+			BDDFactory bdd_mgr = engine.getBDDManager();
+			int dVariable = bdd_mgr.varNum();
+			bdd_mgr.setVarNum(dVariable + 1);
+			BDD dataConstraint = bdd_mgr.ithVar(dVariable).imp(portBDD(0, "a").and(portBDD(2, "a")));
+			engine.specifyPermanentExtraConstraints(Collections.singleton(dataConstraint));
+
+			engine.totalBehaviourBDD();
+			engine.informGlue(glueenc.totalGlue());
+		}
+
+		private BDD portBDD(int component, String port) {
+			return behenc.getBDDOfAPort(components.get(component), port);
+		}
+
+		private BIPCoordinator coordinator() {
+			Map<String, Object> values = new Hashtable<String, Object>();
+			values.put("getBehaviourByComponent", new ModelProxies.Answer() {
+				public Object answer(Object[] args) {
+					return behaviours.get(args[0]);
+				}
+			});
+			values.put("getBIPComponentInstances", new ModelProxies.Answer() {
+				public Object answer(Object[] args) {
+					List<BIPComponent> instances = new ArrayList<BIPComponent>();
+					for (BIPComponent component : components) {
+						if (component.getType().equals(args[0])) {
+							instances.add(component);
+						}
+					}
+					return instances;
+				}
+			});
+			values.put("getBehaviourEncoderInstance", behenc);
+			values.put("getBDDManager", engine.getBDDManager());
+			values.put("getNoComponents", new ModelProxies.Answer() {
+				public Object answer(Object[] args) {
+					return components.size();
+				}
+			});
+			values.put("getNoPorts", new ModelProxies.Answer() {
+				public Object answer(Object[] args) {
+					return nbPorts;
+				}
+			});
+			values.put("getNoStates", new ModelProxies.Answer() {
+				public Object answer(Object[] args) {
+					return nbStates;
+				}
+			});
+			return ModelProxies.proxy(BIPCoordinator.class, values);
+		}
+
+		/**
+		 * @return the solutions in the given states of the components, with the state variables quantified away.
+		 */
+		BDD solutions(List<String> states, Map<BIPComponent, Set<Port>> disabledPorts) {
+			BDDFactory bdd_mgr = engine.getBDDManager();
+			BDD currentState = bdd_mgr.one();
+			for (int i = 0; i < components.size(); i++) {
+				BIPComponent component = components.get(i);
+				Set<Port> componentDisabledPorts = disabledPorts.get(component);
+				if (componentDisabledPorts == null) {
+					componentDisabledPorts = Collections.emptySet();
+				}
+				/* The current state BDDs are cached by the encoder, hence not freed */
+				BDD tmp = currentState.and(currstenc.inform(component, states.get(i), componentDisabledPorts));
+				currentState.free();
+				currentState = tmp;
+			}
+			BDD solns = engine.solutions(currentState);
+			currentState.free();
+			BDDVarSet stateVariables = bdd_mgr.makeSet(engine.statePositions());
+			BDD result = solns.exist(stateVariables);
+			stateVariables.free();
+			solns.free();
+			return result;
+		}
+
+	}
+
+	public PartitionedEngineTests() {
+		for (int i = 0; i < 3; i++) {
+			String type = "C" + i;
+			BIPComponent component = ModelProxies.component(type);
+			Port a = ModelProxies.port("a", type);
+			Port b = ModelProxies.port("b", type);
+			Map<String, Set<Port>> stateToPorts = new Hashtable<String, Set<Port>>();
+			stateToPorts.put("s0", new LinkedHashSet<Port>(Arrays.asList(a)));
+			stateToPorts.put("s1", new LinkedHashSet<Port>(Arrays.asList(a, b)));
+			components.add(component);
+			ports.put(component, Arrays.asList(a, b));
+			behaviours.put(component, ModelProxies.behaviour(type, STATES, Arrays.asList(a, b), stateToPorts,
+					new Hashtable<Port, Set<Data<?>>>()));
+		}
+
+		List<Require> requires = new ArrayList<Require>();
+		requires.add(require("C0", "a", "C1", "a"));
+		requires.add(require("C1", "a", "C0", "a"));
+		requires.add(require("C0", "b", "C2", "b"));
+		List<Accept> accepts = new ArrayList<Accept>();
+		accepts.add(accept("C0", "a", "C1", "a"));
+		accepts.add(accept("C1", "a", "C0", "a"));
+		accepts.add(accept("C0", "b", "C2", "b"));
+		accepts.add(accept("C2", "b", "C0", "b"));
+
+		Map<String, Object> glueValues = new Hashtable<String, Object>();
+		glueValues.put("getRequiresConstraints", requires);
+		glueValues.put("getAcceptConstraints", accepts);
+		glueValues.put("getDataWires", new ArrayList<DataWire>());
+		glue = ModelProxies.proxy(BIPGlue.class, glueValues);
+	}
+
+	private Require require(String effectType, String effectPort, String causeType, String causePort) {
+		List<List<PortBase>> causes = new ArrayList<List<PortBase>>();
+		causes.add(Collections.<PortBase> singletonList(ModelProxies.port(causePort, causeType)));
+		Map<String, Object> values = new Hashtable<String, Object>();
+		values.put("getEffect", ModelProxies.port(effectPort, effectType));
+		values.put("getCauses", causes);
+		return ModelProxies.proxy(Require.class, values);
+	}
+
+	private Accept accept(String effectType, String effectPort, String causeType, String causePort) {
+		Map<String, Object> values = new Hashtable<String, Object>();
+		values.put("getEffect", ModelProxies.port(effectPort, effectType));
+		values.put("getCauses", Collections.<PortBase> singletonList(ModelProxies.port(causePort, causeType)));
+		return ModelProxies.proxy(Accept.class, values);
+	}
+
+	@Test
+	public void testSameSolutionsAsMonolithicEngine() {
+		ModelEngine monolithic = new ModelEngine(new BDDBIPEngineImpl());
+		EngineConfiguration configuration = new EngineConfiguration();
+		/* Small clusters, so that the transition relation is split into several of them */
+		configuration.setPartitionClusterNodeLimit(8);
+		ModelEngine partitioned = new ModelEngine(new PartitionedBDDBIPEngineImpl(configuration));
+		BDDFactory bdd_mgr = monolithic.engine.getBDDManager();
+
+		List<Map<BIPComponent, Set<Port>>> disabledPortsOptions = new ArrayList<Map<BIPComponent, Set<Port>>>();
+		disabledPortsOptions.add(new Hashtable<BIPComponent, Set<Port>>());
+		Map<BIPComponent, Set<Port>> disabledA = new Hashtable<BIPComponent, Set<Port>>();
+		disabledA.put(components.get(2), new HashSet<Port>(Arrays.asList(ports.get(components.get(2)).get(0))));
+		disabledPortsOptions.add(disabledA);
+
+		for (String state0 : STATES) {
+			for (String state1 : STATES) {
+				for (String state2 : STATES) {
+					List<String> states = Arrays.asList(state0, state1, state2);
+					for (Map<BIPComponent, Set<Port>> disabledPorts : disabledPortsOptions) {
+						BDD expected = monolithic.solutions(states, disabledPorts);
+						BDD partitionedSolutions = partitioned.solutions(states, disabledPorts);
+						BDD actual = BDDTransfer.copy(partitionedSolutions, bdd_mgr);
+						assertFalse(expected.isZero());
+						assertEquals("Solutions in states " + states + " with disabled ports " + disabledPorts,
+								expected, actual);
+						expected.free();
+						actual.free();
+						partitionedSolutions.free();
+					}
+				}
+			}
+		}
+	}
+
+}
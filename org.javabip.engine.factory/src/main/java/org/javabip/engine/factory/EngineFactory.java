@@ -18,6 +18,10 @@
  */
 package org.javabip.engine.factory;
 
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import org.javabip.api.BIPEngine;
 import org.javabip.api.BIPGlue;
 import org.javabip.engine.BDDBIPEngineImpl;
@@ -25,13 +29,18 @@ import org.javabip.engine.BehaviourEncoderImpl;
 import org.javabip.engine.CurrentStateEncoderImpl;
 import org.javabip.engine.DataEncoderImpl;
 import org.javabip.engine.GlueEncoderImpl;
+import org.javabip.engine.PartitionedBDDBIPEngineImpl;
 import org.javabip.engine.api.BDDBIPEngine;
 import org.javabip.engine.api.BIPCoordinator;
 import org.javabip.engine.api.BehaviourEncoder;
 import org.javabip.engine.api.CurrentStateEncoder;
 import org.javabip.engine.api.DataEncoder;
-import org.javabip.engine.api.GlueEncoder;
+import org.javabip.engine.api.EngineConfiguration;
 import org.javabip.engine.coordinator.BIPCoordinatorImpl;
+import org.javabip.engine.coordinator.PartitionedCoordinator;
+import org.javabip.exceptions.BIPEngineException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import akka.actor.ActorSystem;
 import akka.actor.TypedActor;
@@ -45,26 +54,34 @@ import akka.japi.Creator;
 public class EngineFactory {
 	ActorSystem actorSystem;
 
+	private Logger logger = LoggerFactory.getLogger(EngineFactory.class);
+
+	/** The coordinator behind each engine actor created by this factory, to which shutdown() is forwarded. */
+	private Map<BIPEngine, BIPEngine> coordinators = new Hashtable<BIPEngine, BIPEngine>();
+
 	public EngineFactory(ActorSystem actorSystem) {
 		this.actorSystem = actorSystem;
 	}
 
 	public BIPEngine create(String id, BIPGlue glue) {
+		return create(id, glue, new EngineConfiguration());
+	}
 
-		GlueEncoder glueenc = new GlueEncoderImpl();
-		BehaviourEncoder behenc = new BehaviourEncoderImpl();
-		CurrentStateEncoder currstenc = new CurrentStateEncoderImpl();
-		BDDBIPEngine bddBIPEngine = new BDDBIPEngineImpl();
-
-		BIPCoordinator basicCoordinator = new BIPCoordinatorImpl(actorSystem, glueenc, behenc, currstenc, bddBIPEngine);
+	/**
+	 * Creates a BIP Engine actor whose BDD manager is set up according to the given configuration.
+	 */
+	public BIPEngine create(String id, BIPGlue glue, final EngineConfiguration configuration) {
 
 		BIPEngine bipEngine;
 
-		if (glue.getDataWires().size() == 0) {
-			bipEngine = basicCoordinator;
+		if (configuration.isPartitionedEngine()) {
+			bipEngine = new PartitionedCoordinator(new PartitionedCoordinator.ClusterEngineFactory() {
+				public BIPEngine create(BIPGlue clusterGlue) {
+					return createEngine(clusterGlue, configuration);
+				}
+			});
 		} else {
-			DataEncoder dataEncoder = new DataEncoderImpl();
-			bipEngine = new org.javabip.engine.coordinator.DataCoordinatorKernel(basicCoordinator, dataEncoder);
+			bipEngine = createEngine(glue, configuration);
 		}
 
 		final BIPEngine engine = bipEngine;
@@ -76,6 +93,8 @@ public class EngineFactory {
 					}
 				}), id);
 
+		coordinators.put(actor, engine);
+
 		// TODO: make the DataCoordinatorImpl implement this function (after refactoring the coordinators)
 		// executor.setProxy(actor);
 		actor.initialize();
@@ -85,12 +104,73 @@ public class EngineFactory {
 		return actor;
 	}
 
+	/**
+	 * Creates the coordinator of the given glue, either as BIP Coordinator or as Data Coordinator, with its own
+	 * encoders and BDD manager.
+	 */
+	private BIPEngine createEngine(BIPGlue glue, EngineConfiguration configuration) {
+
+		GlueEncoderImpl glueenc = new GlueEncoderImpl();
+		glueenc.setCompilationThreads(configuration.getGlueCompilationThreads());
+		BehaviourEncoder behenc = new BehaviourEncoderImpl();
+		CurrentStateEncoder currstenc = new CurrentStateEncoderImpl(configuration.getCurrentStateCacheCapacity());
+		BDDBIPEngine bddBIPEngine;
+		if (configuration.isPartitionedTransitionRelation()) {
+			bddBIPEngine = new PartitionedBDDBIPEngineImpl(configuration);
+		} else {
+			bddBIPEngine = new BDDBIPEngineImpl(configuration);
+		}
+
+		BIPCoordinatorImpl basicCoordinator = new BIPCoordinatorImpl(actorSystem, glueenc, behenc, currstenc,
+				bddBIPEngine);
+		basicCoordinator.setPartialInformScheduling(configuration.isPartialInformScheduling());
+		basicCoordinator.setMaxOutstandingInteractions(configuration.getMaxOutstandingInteractions());
+		basicCoordinator.setExecutionBackend(configuration.getExecutionBackend());
+		basicCoordinator.setNotifyNonParticipants(configuration.isNotifyNonParticipants());
+
+		if (glue.getDataWires().size() == 0) {
+			return basicCoordinator;
+		} else {
+			DataEncoder dataEncoder = new DataEncoderImpl();
+			return new org.javabip.engine.coordinator.DataCoordinatorKernel(basicCoordinator, dataEncoder);
+		}
+	}
+
+	/**
+	 * Stops an engine created by this factory and waits for it to terminate, see BIPCoordinator.shutdown(). The call
+	 * goes to the coordinator directly rather than through the engine actor, so that the wait happens in the calling
+	 * thread.
+	 * 
+	 * @param engine
+	 *            the engine actor returned by create().
+	 * @param drain
+	 *            if true, all the interactions chosen by the engine are sent to their participants before it stops.
+	 * @param timeout
+	 *            the maximum time to wait for the engine to terminate, no wait if not positive.
+	 * @param unit
+	 *            the unit of the timeout.
+	 * @return the number of execution cycles in which interactions were executed.
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting.
+	 */
+	public long shutdown(BIPEngine engine, boolean drain, long timeout, TimeUnit unit) throws InterruptedException {
+		BIPEngine coordinator = coordinators.get(engine);
+		if (coordinator instanceof BIPCoordinator) {
+			return ((BIPCoordinator) coordinator).shutdown(drain, timeout, unit);
+		} else if (coordinator instanceof PartitionedCoordinator) {
+			return ((PartitionedCoordinator) coordinator).shutdown(drain, timeout, unit);
+		}
+		logger.error("The engine to shut down has not been created by this engine factory.");
+		throw new BIPEngineException("The engine to shut down has not been created by this engine factory.");
+	}
+
 	public boolean destroy(BIPEngine engine) {
 
 		// TODO EXTENSION when it is possible to deregister a component from BIP engine make sure it happens here.
 		// executor.engine().deregister();
 
 		if (TypedActor.get(actorSystem).isTypedActor(engine)) {
+			coordinators.remove(engine);
 			TypedActor.get(actorSystem).poisonPill(engine);
 			// TypedActor.get(actorSystem).stop(engine);
 			// Future<Boolean> stopped =